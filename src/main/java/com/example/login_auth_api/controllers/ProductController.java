@@ -1,6 +1,7 @@
 package com.example.login_auth_api.controllers;
 
 import com.example.login_auth_api.domain.products.Product;
+import com.example.login_auth_api.dto.CursorPageDTO;
 import com.example.login_auth_api.dto.ProductDTO;
 import com.example.login_auth_api.services.ProductService;
 import jakarta.validation.Valid;
@@ -16,6 +17,9 @@ import java.util.Map;
 @RequestMapping("/products")
 public class ProductController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final ProductService productService;
 
     @Autowired
@@ -23,13 +27,25 @@ public class ProductController {
         this.productService = productService;
     }
 
-    // Rota para listar todos os produtos (não deletados)
+    // Rota para listar todos os produtos (não deletados).
+    // Com "limit" e/ou "cursor" devolve uma página (paginação por cursor); sem eles mantém a lista completa
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String cursor) {
         try {
-            List<Product> products = productService.getAllProducts();
-            return ResponseEntity.ok(products);
-        }catch (Exception e) {
+            if (limit == null && cursor == null) {
+                List<Product> products = productService.getAllProducts();
+                return ResponseEntity.ok(products);
+            }
+            int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return ResponseEntity.badRequest().body("O limite deve estar entre 1 e " + MAX_PAGE_SIZE + ".");
+            }
+            CursorPageDTO<Product> page = productService.getProductsPage(pageSize, cursor);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
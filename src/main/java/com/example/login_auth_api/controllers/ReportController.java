@@ -1,31 +1,49 @@
 package com.example.login_auth_api.controllers;
 
-import com.example.login_auth_api.domain.products.Product;
 import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.dto.DashboardDTO;
 import com.example.login_auth_api.dto.ProductDTO;
-import com.example.login_auth_api.dto.SaleDTO;
+import com.example.login_auth_api.dto.ReportCacheStatsDTO;
+import com.example.login_auth_api.dto.ReportJobDTO;
+import com.example.login_auth_api.dto.ReportJobRequestDTO;
+import com.example.login_auth_api.exceptions.CustomException;
+import com.example.login_auth_api.repositories.CategoryRankingRepository;
+import com.example.login_auth_api.repositories.SalesHistogramRepository;
 import com.example.login_auth_api.services.ProductService;
+import com.example.login_auth_api.services.reports.CategoryRankingService;
+import com.example.login_auth_api.services.reports.ReportCache;
+import com.example.login_auth_api.services.reports.ReportJobService;
+import com.example.login_auth_api.services.reports.SalesHistogramService;
 import com.example.login_auth_api.services.reports.ReportNumbersService;
 import com.example.login_auth_api.services.reports.ReportProductsService;
 import com.example.login_auth_api.services.reports.ReportSalesService;
-import com.example.login_auth_api.services.SaleService;
+import com.example.login_auth_api.services.reports.SalesRollupService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -42,22 +60,31 @@ public class ReportController {
     private ProductService productService; // Serviço que lida com os produto
 
     @Autowired
-    private SaleService saleService; // Serviço que busca as vendas do banco de dados
+    private ReportNumbersService reportNumbersService;
 
     @Autowired
-    private ReportNumbersService reportNumbersService;
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private CategoryRankingService categoryRankingService;
+
+    @Autowired
+    private SalesHistogramService salesHistogramService;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private ReportJobService reportJobService;
 
     //Rota para listar todas as vendas ou vendas por data no formato PDF ou CSV
     @GetMapping("/sales")
-    public ResponseEntity<byte[]> getSalesReport(
+    public ResponseEntity<StreamingResponseBody> getSalesReport(
             @RequestParam(required = false, defaultValue = "csv") String format, // Parâmetro para o formato do relatório.
             @RequestParam(required = false) String start, // Data e hora de início do intervalo.
             @RequestParam(required = false) String end, // Data e hora de fim do intervalo.
             @RequestParam(required = false) Boolean isGift) throws IOException {
 
-        // Declara uma lista de vendas que será preenchida com os dados das vendas.
-        List<SaleDTO> sales;
-
         // Define o formato para analisar as datas fornecidas.
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
 
@@ -74,106 +101,150 @@ public class ReportController {
             endDateTime = LocalDateTime.parse(end, formatter);
         }
 
-        // Lógica para buscar vendas com base nos parâmetros fornecidos.
-        if (startDateTime != null && endDateTime != null) {
-            sales = saleService.listSalesByDateRangeAndGiftStatus(startDateTime, endDateTime, isGift);
-        } else {
-            sales = saleService.listAllSalesByGiftStatus(isGift);
+        LocalDateTime reportStart = startDateTime;
+        LocalDateTime reportEnd = endDateTime;
+
+        // CSV: escrito direto na resposta enquanto as vendas são lidas do banco, sem montar o arquivo em memória
+        if ("csv".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> reportSalesService.writeSalesCsvReport(out, reportStart, reportEnd, isGift);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=relatorio_vendas.csv")
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .body(body);
+        }
+
+        // PDF: também escrito direto na resposta, com a tabela desenhada em partes enquanto as vendas são lidas
+        if ("pdf".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> reportSalesService.writeSalesPdfReport(out, reportStart, reportEnd, isGift);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=relatorio_vendas.pdf")
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(body);
         }
 
-        // Gera o relatório no formato solicitado e retorna a resposta com o relatório.
-        return generateReportWithDateRange(format, sales, startDateTime, endDateTime);
+        return streamBytes(ResponseEntity.badRequest().body("Formato não suportado.".getBytes()));
     }
 
     //rota para listar produto
     @GetMapping("/products")
-    public ResponseEntity<byte[]> getProductsReport(
+    public ResponseEntity<StreamingResponseBody> getProductsReport(
             @RequestParam(required = false, defaultValue = "csv") String format,
             @RequestParam(required = false) Boolean deleted,
             @RequestParam(required = false) Boolean profit,
             @RequestParam(required = false) String categoryId) throws IOException {
 
-        List<ProductDTO> productDTOs;
-        List<Product> products;
-
-        // Determina se busca produtos deletados, não deletados, ou todos
-        if (deleted != null) {
-            if (deleted) {
-                products = productService.getAllProductsDeleted();
-            } else {
-                products = productService.getAllProducts();
-            }
-        } else {
-            products = productService.findAllProducts();
-        }
-
-        if (categoryId != null && !categoryId.isEmpty()) {
-            products = products.stream()
-                    .filter(product -> product.getCategory() != null && categoryId.equals(product.getCategory().getId()))
-                    .collect(Collectors.toList());
-        }
+        String filename = "relatorio_produtos";
 
-        // Mapeia os produtos para DTOs
-        productDTOs = products.stream()
-                .map(ProductDTO::fromEntity)
-                .collect(Collectors.toList());
+        // Geração do relatório em CSV, escrito direto na resposta enquanto os produtos são lidos do banco
+        if ("csv".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> reportProductsService.writeProductsCsvReport(out, deleted, profit, categoryId);
+            filename += ".csv";
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.CONTENT_TYPE, "text/csv; charset=UTF-8");
+            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
+            return ResponseEntity.ok().headers(headers).body(body);
 
-        ByteArrayInputStream report;
-        String filename = "relatorio_produtos";
+            // Geração do relatório em PDF
+        } else if ("pdf".equalsIgnoreCase(format)) {
+            // Busca os produtos já filtrados por deletado e categoria
+            List<ProductDTO> productDTOs = productService.listProductsForReport(deleted, categoryId);
 
-        // Geração do relatório em PDF
-        if ("pdf".equalsIgnoreCase(format)) {
             // Chama o serviço para gerar o relatório PDF, considerando se o lucro deve ser incluído
-            report = reportProductsService.generateProductsPdfReport(productDTOs, profit);
+            ByteArrayInputStream report = reportProductsService.generateProductsPdfReport(productDTOs, profit);
             filename += ".pdf";
             HttpHeaders headers = new HttpHeaders();
             headers.add(HttpHeaders.CONTENT_TYPE, "application/pdf");
             headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
-            return ResponseEntity.ok().headers(headers).body(report.readAllBytes());
-
-            // Geração do relatório em CSV
-        } else if ("csv".equalsIgnoreCase(format)) {
-            // Chama o serviço para gerar o relatório CSV, considerando se o lucro deve ser incluído
-            report = reportProductsService.generateProductsCsvReport(productDTOs, deleted, profit);
-            filename += ".csv";
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_TYPE, "text/csv");
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
-            return ResponseEntity.ok().headers(headers).body(report.readAllBytes());
+            return streamBytes(ResponseEntity.ok().headers(headers).body(report.readAllBytes()));
 
             // Caso o formato seja inválido
         } else {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Formato não suportado".getBytes());
+            return streamBytes(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Formato não suportado".getBytes()));
+        }
+    }
+
+    //Rotas para relatórios gerados em segundo plano
+    //rota para pedir um relatório de vendas ou produtos; responde na hora com o ID do job
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitReportJob(@RequestBody ReportJobRequestDTO request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reportJobService.submit(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Muitos relatórios na fila. Tente novamente em instantes.");
+        }
+    }
+
+    //rota para consultar a situação de um relatório
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getReportJob(@PathVariable String id) {
+        try {
+            ReportJobDTO job = reportJobService.getJob(id);
+            return ResponseEntity.ok(job);
+        } catch (CustomException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         }
     }
 
-    //Método para gerar e retornar um relatório no formato CSV ou PDF com tratamento de erro
-    private ResponseEntity<byte[]> generateReportWithDateRange(String format, List<SaleDTO> sales, LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        ByteArrayInputStream reportStream;
+    //rota para baixar o relatório pronto
+    @GetMapping("/jobs/{id}/download")
+    public ResponseEntity<?> downloadReportJob(@PathVariable String id, HttpServletRequest request) {
         try {
-            if ("csv".equalsIgnoreCase(format)) {
-                reportStream = reportSalesService.generateSalesCsvReport(sales, startDateTime, endDateTime);
-                return ResponseEntity.ok()
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=relatorio_vendas.csv")
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body(reportStream.readAllBytes());
-            } else if ("pdf".equalsIgnoreCase(format)) {
-                reportStream = reportSalesService.generateSalesPdfReport(sales, startDateTime, endDateTime);
-                return ResponseEntity.ok()
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=relatorio_vendas.pdf")
-                        .contentType(MediaType.APPLICATION_PDF)
-                        .body(reportStream.readAllBytes());
-            } else {
-                return ResponseEntity.badRequest().body("Formato não suportado.".getBytes());
+            ReportJobService.Artifact artifact = reportJobService.getArtifact(id);
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.CONTENT_TYPE, artifact.contentType());
+            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + artifact.filename());
+            headers.setContentLength(artifact.size());
+
+            // Com o conector NIO do Tomcat, o arquivo é enviado pelo sendfile do sistema operacional (sem copiar para a JVM)
+            if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+                request.setAttribute("org.apache.tomcat.sendfile.filename", artifact.path().toAbsolutePath().toString());
+                request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+                request.setAttribute("org.apache.tomcat.sendfile.end", artifact.size());
+                return ResponseEntity.ok().headers(headers).build();
             }
-        } catch (IOException e) {
-            // Return an error response
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao gerar o relatório.".getBytes());
+            return ResponseEntity.ok().headers(headers).body(new FileSystemResource(artifact.path()));
+        } catch (CustomException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         }
     }
 
+    // O Spring só escreve StreamingResponseBody quando o tipo declarado do método é ResponseEntity<StreamingResponseBody>;
+    // por isso as respostas já prontas em bytes (PDF de produtos e erros) das rotas em streaming passam por aqui
+    private static ResponseEntity<StreamingResponseBody> streamBytes(ResponseEntity<byte[]> response) {
+        byte[] bytes = response.getBody();
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .body(out -> out.write(bytes));
+    }
+
     //Rotas para relatorio de numeros
+    //rota para reconstruir os totais diários usados nos relatórios de mês, ano e últimos meses
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<String> rebuildSalesRollup() {
+        try {
+            salesRollupService.rebuild();
+            return ResponseEntity.ok("Totais diários reconstruídos com sucesso.");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Ocorreu um erro interno no servidor.");
+        }
+    }
+
+    //rota com os acertos, faltas e tempo de cálculo do cache dos relatórios
+    @GetMapping("/cache-stats")
+    public ResponseEntity<ReportCacheStatsDTO> getCacheStats() {
+        return ResponseEntity.ok(reportCache.getStats());
+    }
+
+    //rota com todos os números do dashboard em uma única resposta
+    @GetMapping("/dashboard")
+    public ResponseEntity<DashboardDTO> getDashboard() {
+        return ResponseEntity.ok(reportNumbersService.getDashboard());
+    }
+
     //rota para numero de vendas por metodo de pagamento
     @GetMapping("/sales-by-payment-method")
     public Map<String, Integer> getSalesByPaymentMethod() {
@@ -182,7 +253,7 @@ public class ReportController {
         // Converte o mapa com PaymentMethod como chave para um mapa com String (em maiúsculas) como chave
         return salesByMethod.entrySet().stream()
                 .collect(Collectors.toMap(
-                        entry -> formatPaymentMethod(entry.getKey()), // Chave formatada
+                        entry -> ReportNumbersService.formatPaymentMethod(entry.getKey()), // Chave formatada
                         Map.Entry::getValue // Valor
                 ));
     }
@@ -213,6 +284,24 @@ public class ReportController {
         return reportNumbersService.getCountOfSalesThisYear();
     }
 
+    //rota para quantidade de vendas e valor vendido agrupados por hora, dia, semana ou mês em um período qualquer
+    @GetMapping("/sales-histogram")
+    public ResponseEntity<?> getSalesHistogram(
+            @RequestParam String from, // Data e hora de início (yyyy-MM-dd'T'HH:mm:ss)
+            @RequestParam String to, // Data e hora de fim (yyyy-MM-dd'T'HH:mm:ss)
+            @RequestParam(required = false, defaultValue = "day") String bucket) { // hour, day, week ou month
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+            SalesHistogramRepository.Bucket histogramBucket = SalesHistogramRepository.Bucket.fromParam(bucket);
+            return ResponseEntity.ok(salesHistogramService.histogram(
+                    LocalDateTime.parse(from, formatter), LocalDateTime.parse(to, formatter), histogramBucket));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Data inválida. Use o formato yyyy-MM-dd'T'HH:mm:ss.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/sales-last-six-months")
     public Map<String, Integer> getSalesByMonthLastSixMonths() {
         return reportNumbersService.getSalesByMonthLastSixMonths();
@@ -238,6 +327,25 @@ public class ReportController {
         return reportNumbersService.getTotalSalesByMonthLastSixMonths();
     }
 
+    //rota para rank de categoria mais vendida em um período qualquer, por linhas de item, unidades ou faturamento
+    @GetMapping("/category-ranking")
+    public ResponseEntity<?> getCategoryRanking(
+            @RequestParam String start, // Data e hora de início (yyyy-MM-dd'T'HH:mm:ss)
+            @RequestParam String end, // Data e hora de fim (yyyy-MM-dd'T'HH:mm:ss)
+            @RequestParam(required = false, defaultValue = "units") String metric, // lines, units ou revenue
+            @RequestParam(required = false) Integer limit) { // Quantidade de categorias no ranking (opcional)
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+            CategoryRankingRepository.Metric rankingMetric = CategoryRankingRepository.Metric.fromParam(metric);
+            return ResponseEntity.ok(categoryRankingService.rank(
+                    LocalDateTime.parse(start, formatter), LocalDateTime.parse(end, formatter), rankingMetric, limit));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Data inválida. Use o formato yyyy-MM-dd'T'HH:mm:ss.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     //rota para rank de categoria mais vendida do dia mes ano
     @GetMapping("/category-top-today")
     public Map<String, Long> getTopCategoriesForToday() {
@@ -251,16 +359,4 @@ public class ReportController {
     public Map<String, Long> getTopCategoriesForYear() {
         return reportNumbersService.getTopCategoriesForYear();
     }
-
-    //Método auxiliar para formatar o retorno do tipo de pagamento
-    private String formatPaymentMethod(PaymentMethod method) {
-        switch (method) {
-            case DINHEIRO: return "DINHEIRO";
-            case DEBITO: return "DÉBITO";
-            case CREDITO: return "CRÉDITO";
-            case PIX: return "PIX";
-            case OUTRO: return "OUTRO";
-            default: return method.name().toUpperCase(); // Por segurança, se adicionar novos métodos
-        }
-    }
 }
@@ -1,7 +1,10 @@
 package com.example.login_auth_api.controllers;
 
-import com.example.login_auth_api.domain.sales.Sale;
+import com.example.login_auth_api.dto.CursorPageDTO;
+import com.example.login_auth_api.dto.LockStripeMetricsDTO;
+import com.example.login_auth_api.dto.SaleBatchResultDTO;
 import com.example.login_auth_api.dto.SaleDTO;
+import com.example.login_auth_api.infra.locks.StripedLockService;
 import com.example.login_auth_api.services.SaleService;
 import com.example.login_auth_api.exceptions.CustomException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,15 +20,28 @@ import java.util.List;
 @RequestMapping("/sales")
 public class SaleController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private SaleService saleService;
 
+    @Autowired
+    private StripedLockService stripedLockService;
+
     //Endpoint para criar uma venda
     @PostMapping
-    public ResponseEntity<Object> createSale(@RequestBody SaleDTO saleDTO) {
+    public ResponseEntity<Object> createSale(@RequestBody SaleDTO saleDTO,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            Sale sale = saleService.createSale(saleDTO);
-            SaleDTO resultDTO = saleService.convertToDTO(sale);
+            // A chave do header tem prioridade; repetir a requisição com a mesma chave devolve a venda original
+            if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+                saleDTO.setIdempotencyKey(idempotencyKey.trim());
+            }
+            if (saleDTO.getIdempotencyKey() != null && saleDTO.getIdempotencyKey().length() > 255) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("A chave de idempotência deve ter no máximo 255 caracteres.");
+            }
+            SaleDTO resultDTO = saleService.createSaleIdempotent(saleDTO);
             return ResponseEntity.status(HttpStatus.CREATED).body(resultDTO);
         } catch (CustomException ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
@@ -36,12 +52,38 @@ public class SaleController {
         }
     }
 
-    // Endpoint para listar todas as vendas
+    // Endpoint para criar várias vendas de uma vez (reenvio das vendas feitas offline nos terminais)
+    @PostMapping("/batch")
+    public ResponseEntity<Object> createSalesBatch(@RequestBody List<SaleDTO> saleDTOs) {
+        try {
+            if (saleDTOs == null || saleDTOs.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("A lista de vendas não pode estar vazia.");
+            }
+            List<SaleBatchResultDTO> results = saleService.createSalesBatch(saleDTOs);
+            return ResponseEntity.ok(results);
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Ocorreu um erro interno no servidor.");
+        }
+    }
+
+    // Endpoint para listar todas as vendas.
+    // Com "limit" e/ou "cursor" devolve uma página (paginação por cursor); sem eles mantém a lista completa
     @GetMapping
-    public ResponseEntity<?> listAllSales() {
+    public ResponseEntity<?> listAllSales(@RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String cursor) {
         try {
-            List<SaleDTO> sales = saleService.listAllSales();
-            return ResponseEntity.ok(sales);
+            if (limit == null && cursor == null) {
+                List<SaleDTO> sales = saleService.listAllSales();
+                return ResponseEntity.ok(sales);
+            }
+            int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("O limite deve estar entre 1 e " + MAX_PAGE_SIZE + ".");
+            }
+            CursorPageDTO<SaleDTO> page = saleService.listSalesPage(pageSize, cursor);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
             // Retorna uma mensagem de erro no corpo da resposta
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Ocorreu um erro interno no servidor.");
@@ -59,6 +101,12 @@ public class SaleController {
         }
     }
 
+    // Endpoint com as métricas de espera das travas de estoque usadas na criação de vendas
+    @GetMapping("/lock-metrics")
+    public ResponseEntity<List<LockStripeMetricsDTO>> getLockMetrics() {
+        return ResponseEntity.ok(stripedLockService.getMetrics());
+    }
+
     // Endpoint para buscar uma venda pelo ID (ajustado para String)
     @GetMapping("/{id}")
     public ResponseEntity<?> getSaleById(@PathVariable String id) {
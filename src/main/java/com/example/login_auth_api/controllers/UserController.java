@@ -3,6 +3,7 @@ package com.example.login_auth_api.controllers;
 import com.example.login_auth_api.domain.user.Role;
 import com.example.login_auth_api.domain.user.User;
 import com.example.login_auth_api.exceptions.CustomException;
+import com.example.login_auth_api.infra.security.AuthenticationCache;
 import com.example.login_auth_api.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -18,6 +19,9 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     // Rota para mudança de role do usuário (role passada como parâmetro, não no body)
     @PutMapping("/user/changerole/{userId}")
     public ResponseEntity<String> changeUserRole(@PathVariable String userId, @RequestParam String newRole) {
@@ -32,6 +36,8 @@ public class UserController {
             // Atualiza o papel do usuário
             user.setRole(role);
             userRepository.save(user);
+            // Os tokens já em cache passam a usar a nova função na próxima requisição
+            authenticationCache.invalidateUser(user.getId());
 
             return ResponseEntity.ok("Função do usuário atualizada com sucesso!");
 
@@ -62,6 +68,7 @@ public class UserController {
             User user = userOpt.get();
             user.setAuthorized(true);
             userRepository.save(user);
+            authenticationCache.invalidateUser(user.getId());
 
             return ResponseEntity.status(HttpStatus.OK).body("Autorização concedida com sucesso");
         } catch (Exception e) {
@@ -82,6 +89,7 @@ public class UserController {
             User user = userOpt.get();
             user.setAuthorized(false);
             userRepository.save(user);
+            authenticationCache.invalidateUser(user.getId());
 
             return ResponseEntity.status(HttpStatus.OK).body("Autorização removida com sucesso");
         } catch (Exception e) {
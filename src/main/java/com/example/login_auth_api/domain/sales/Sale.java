@@ -46,6 +46,10 @@ public class Sale {
     @Column(name = "is_gift")
     private Boolean isGift = false;
 
+    // Chave enviada pelo cliente (header Idempotency-Key) para que a repetição da requisição não duplique a venda
+    @Column(name = "idempotency_key", unique = true)
+    private String idempotencyKey;
+
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -60,7 +64,10 @@ public class Sale {
 
     @PrePersist
     protected void onCreate() {
-        totalAmount = BigDecimal.ZERO;
+        // Só assume zero se o total ainda não foi calculado (a venda pode ser gravada já completa)
+        if (totalAmount == null) {
+            totalAmount = BigDecimal.ZERO;
+        }
     }
 
 }
@@ -8,6 +8,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.math.BigDecimal;
+
 @Entity
 @Table(name = "sale_items")
 @Getter
@@ -34,4 +36,8 @@ public class SaleItem {
 
     @Column(nullable = false)
     private Integer quantity;
+
+    // Preço unitário do produto no momento da venda
+    @Column(name = "unit_price")
+    private BigDecimal unitPrice;
 }
@@ -0,0 +1,7 @@
+package com.example.login_auth_api.dto;
+
+import java.util.List;
+
+// Página da paginação por cursor; nextCursor é nulo quando não há mais páginas
+public record CursorPageDTO<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,38 @@
+package com.example.login_auth_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+// Resumo do dashboard: os mesmos números das rotas individuais de /reports em uma única resposta
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class DashboardDTO {
+    // Quantidade de vendas
+    private long salesToday;
+    private long salesThisMonth;
+    private long salesThisYear;
+
+    // Valor vendido (subtotal, com desconto)
+    private BigDecimal totalSalesToday;
+    private BigDecimal totalSalesThisMonth;
+    private BigDecimal totalSalesThisYear;
+
+    // Vendas do mês por método de pagamento
+    private Map<String, Integer> salesByPaymentMethod;
+
+    // Vendas do mês para presente e normais
+    private long giftSalesCountMonth;
+    private long salesCountMonth;
+
+    // Ranking de categorias por quantidade de itens vendidos
+    private Map<String, Long> categoryTopToday;
+    private Map<String, Long> categoryTopThisMonth;
+    private Map<String, Long> categoryTopThisYear;
+}
@@ -0,0 +1,8 @@
+package com.example.login_auth_api.dto;
+
+public record LockStripeMetricsDTO(int stripe,
+                                   long acquisitions,
+                                   long contended,
+                                   long timeouts,
+                                   double averageWaitMillis,
+                                   double maxWaitMillis) {}
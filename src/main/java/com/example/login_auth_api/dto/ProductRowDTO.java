@@ -0,0 +1,41 @@
+package com.example.login_auth_api.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+// Linha "achatada" da exportação de produtos: uma por tamanho (ou uma só, sem tamanho, para produto sem tamanhos).
+// Preenchida direto pela consulta, sem carregar as entidades no contexto de persistência
+public record ProductRowDTO(String productId,
+                            String name,
+                            String categoryId,
+                            String categoryName,
+                            BigDecimal cost,
+                            BigDecimal price,
+                            Integer quantity,
+                            boolean deleted,
+                            Integer quantitySold,
+                            String sizeId,
+                            String size,
+                            Integer sizeQuantity) {
+
+    // Converte os campos do produto para ProductDTO (os tamanhos são adicionados depois)
+    public ProductDTO toProductDTO() {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(productId);
+        dto.setName(name);
+        dto.setCategoryId(categoryId);
+        dto.setCategoryName(categoryName);
+        dto.setCost(cost);
+        dto.setPrice(price);
+        dto.setQuantity(quantity);
+        dto.setDeleted(deleted);
+        dto.setQuantitySold(quantitySold);
+        dto.setSizes(new ArrayList<>());
+        return dto;
+    }
+
+    // Converte os campos do tamanho para ProductSizeDTO
+    public ProductSizeDTO toSizeDTO() {
+        return new ProductSizeDTO(sizeId, size, sizeQuantity);
+    }
+}
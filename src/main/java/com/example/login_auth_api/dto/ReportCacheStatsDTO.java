@@ -0,0 +1,11 @@
+package com.example.login_auth_api.dto;
+
+public record ReportCacheStatsDTO(long size,
+                                  long hits,
+                                  long misses,
+                                  double hitRate,
+                                  long loads,
+                                  long loadFailures,
+                                  double averageLoadMillis,
+                                  long evictions,
+                                  long invalidations) {}
@@ -0,0 +1,17 @@
+package com.example.login_auth_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+// Situação de um relatório gerado em segundo plano; downloadUrl só aparece quando o arquivo está pronto
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReportJobDTO(String id,
+                           String status,
+                           String type,
+                           String format,
+                           LocalDateTime createdAt,
+                           LocalDateTime finishedAt,
+                           Long sizeBytes,
+                           String error,
+                           String downloadUrl) {}
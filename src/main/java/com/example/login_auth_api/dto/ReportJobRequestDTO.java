@@ -0,0 +1,28 @@
+package com.example.login_auth_api.dto;
+
+import java.time.LocalDateTime;
+
+// Pedido de relatório gerado em segundo plano. type: sales ou products; format: pdf ou csv.
+// start/end/isGift valem para vendas; deleted/profit/categoryId para produtos
+public record ReportJobRequestDTO(String type,
+                                  String format,
+                                  LocalDateTime start,
+                                  LocalDateTime end,
+                                  Boolean isGift,
+                                  Boolean deleted,
+                                  Boolean profit,
+                                  String categoryId) {
+
+    // Mesmo pedido escrito de formas diferentes (maiúsculas, filtros de outro tipo, categoria vazia) vira a mesma chave
+    public ReportJobRequestDTO normalized() {
+        String normalizedType = type == null ? null : type.trim().toLowerCase();
+        String normalizedFormat = format == null ? "csv" : format.trim().toLowerCase();
+        if ("sales".equals(normalizedType)) {
+            boolean hasPeriod = start != null && end != null;
+            return new ReportJobRequestDTO(normalizedType, normalizedFormat,
+                    hasPeriod ? start : null, hasPeriod ? end : null, isGift, null, null, null);
+        }
+        return new ReportJobRequestDTO(normalizedType, normalizedFormat, null, null, null,
+                deleted, profit, categoryId == null || categoryId.isBlank() ? null : categoryId);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.login_auth_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Resultado de cada venda enviada no lote, na mesma posição (index) da lista recebida
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SaleBatchResultDTO(int index, boolean success, String saleId, String error) {
+
+    public static SaleBatchResultDTO created(int index, String saleId) {
+        return new SaleBatchResultDTO(index, true, saleId, null);
+    }
+
+    public static SaleBatchResultDTO failed(int index, String error) {
+        return new SaleBatchResultDTO(index, false, null, error);
+    }
+}
@@ -28,6 +28,7 @@ public class SaleDTO {
     private String userId;
     private String userName;
     private boolean IsGift;
+    private String idempotencyKey;
 
 
     @Getter
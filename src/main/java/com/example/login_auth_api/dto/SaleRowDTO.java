@@ -0,0 +1,52 @@
+package com.example.login_auth_api.dto;
+
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+// Linha "achatada" da listagem de vendas: uma por item (ou uma só, sem item, para venda sem itens).
+// Preenchida direto pela consulta, sem carregar as entidades no contexto de persistência
+public record SaleRowDTO(String saleId,
+                         LocalDateTime saleDate,
+                         BigDecimal totalAmount,
+                         String observation,
+                         PaymentMethod paymentMethod,
+                         BigDecimal discount,
+                         BigDecimal subtotal,
+                         Boolean isGift,
+                         String idempotencyKey,
+                         String userId,
+                         String userName,
+                         String itemId,
+                         String productId,
+                         String productName,
+                         BigDecimal price,
+                         String sizeId,
+                         String sizeName,
+                         Integer quantity) {
+
+    // Converte os campos da venda para SaleDTO (os itens são adicionados depois)
+    public SaleDTO toSaleDTO() {
+        SaleDTO saleDTO = new SaleDTO();
+        saleDTO.setId(saleId);
+        saleDTO.setSaleDate(saleDate);
+        saleDTO.setTotalAmount(totalAmount);
+        saleDTO.setSubtotal(subtotal);
+        saleDTO.setDiscount(discount);
+        saleDTO.setObservation(observation);
+        saleDTO.setPaymentMethod(paymentMethod);
+        saleDTO.setUserId(userId);
+        saleDTO.setUserName(userName);
+        saleDTO.setIsGift(Boolean.TRUE.equals(isGift));
+        saleDTO.setIdempotencyKey(idempotencyKey);
+        saleDTO.setItems(new ArrayList<>());
+        return saleDTO;
+    }
+
+    // Converte os campos do item para SaleItemDTO
+    public SaleDTO.SaleItemDTO toItemDTO() {
+        return new SaleDTO.SaleItemDTO(itemId, productId, productName, price, sizeId, sizeName, quantity);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.login_auth_api.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Histograma de vendas: início de cada intervalo e, na mesma posição, a quantidade de vendas e o subtotal (intervalos sem venda vêm com zero)
+public record SalesHistogramDTO(String bucket, List<LocalDateTime> bucketStarts, List<Long> counts, List<BigDecimal> subtotals) {
+}
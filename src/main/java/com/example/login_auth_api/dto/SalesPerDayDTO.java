@@ -0,0 +1,6 @@
+package com.example.login_auth_api.dto;
+
+import java.time.LocalDate;
+
+// Quantidade de vendas de um dia, preenchida direto pela consulta
+public record SalesPerDayDTO(LocalDate day, Long salesCount) {}
@@ -0,0 +1,143 @@
+package com.example.login_auth_api.infra.locks;
+
+import com.example.login_auth_api.dto.LockStripeMetricsDTO;
+import com.example.login_auth_api.exceptions.CustomException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Travas em memória divididas em faixas (stripes), usadas para serializar as vendas de um mesmo tamanho
+// antes de abrir a transação, assim a disputa acontece aqui e não nas linhas travadas do banco
+@Component
+public class StripedLockService {
+
+    private final ReentrantLock[] locks;
+    private final LongAdder[] acquisitions;
+    private final LongAdder[] contended;
+    private final LongAdder[] timeouts;
+    private final LongAdder[] waitNanos;
+    private final AtomicLong[] maxWaitNanos;
+    private final long timeoutMillis;
+
+    public StripedLockService(@Value("${sales.locks.stripes:64}") int stripes,
+                              @Value("${sales.locks.timeout-ms:5000}") long timeoutMillis) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("O número de faixas de trava deve ser maior que zero.");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.locks = new ReentrantLock[stripes];
+        this.acquisitions = new LongAdder[stripes];
+        this.contended = new LongAdder[stripes];
+        this.timeouts = new LongAdder[stripes];
+        this.waitNanos = new LongAdder[stripes];
+        this.maxWaitNanos = new AtomicLong[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+            acquisitions[i] = new LongAdder();
+            contended[i] = new LongAdder();
+            timeouts[i] = new LongAdder();
+            waitNanos[i] = new LongAdder();
+            maxWaitNanos[i] = new AtomicLong();
+        }
+    }
+
+    // Trava as faixas das chaves informadas, sempre em ordem crescente de índice,
+    // para que vendas com vários itens nunca entrem em deadlock entre si
+    public Lease acquire(Collection<String> keys) {
+        int[] stripes = keys.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::stripeFor)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int acquired = 0;
+        try {
+            for (int stripe : stripes) {
+                lockStripe(stripe);
+                acquired++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(stripes, acquired);
+            throw new CustomException("A venda foi interrompida, tente novamente.");
+        } catch (RuntimeException e) {
+            release(stripes, acquired);
+            throw e;
+        }
+        return new Lease(stripes);
+    }
+
+    // Retorna as métricas de espera das faixas que já foram usadas
+    public List<LockStripeMetricsDTO> getMetrics() {
+        List<LockStripeMetricsDTO> metrics = new ArrayList<>();
+        for (int i = 0; i < locks.length; i++) {
+            long count = acquisitions[i].sum();
+            long waits = contended[i].sum();
+            if (count == 0 && waits == 0) {
+                continue;
+            }
+            double averageWaitMillis = waits == 0 ? 0 : waitNanos[i].sum() / (double) waits / 1_000_000;
+            metrics.add(new LockStripeMetricsDTO(i, count, waits, timeouts[i].sum(),
+                    averageWaitMillis, maxWaitNanos[i].get() / 1_000_000.0));
+        }
+        return metrics;
+    }
+
+    private void lockStripe(int stripe) throws InterruptedException {
+        ReentrantLock lock = locks[stripe];
+        // Caminho rápido: faixa livre, sem espera
+        if (lock.tryLock()) {
+            acquisitions[stripe].increment();
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean locked = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+        long waited = System.nanoTime() - start;
+
+        contended[stripe].increment();
+        waitNanos[stripe].add(waited);
+        maxWaitNanos[stripe].accumulateAndGet(waited, Math::max);
+
+        if (!locked) {
+            timeouts[stripe].increment();
+            throw new CustomException("Muitas vendas simultâneas para o mesmo produto, tente novamente.");
+        }
+        acquisitions[stripe].increment();
+    }
+
+    private int stripeFor(String key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), locks.length);
+    }
+
+    private void release(int[] stripes, int count) {
+        // Libera na ordem inversa da aquisição
+        for (int i = count - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    // Conjunto de faixas travadas; deve ser fechado (try-with-resources) pela mesma thread que travou
+    public final class Lease implements AutoCloseable {
+        private final int[] stripes;
+
+        private Lease(int[] stripes) {
+            this.stripes = stripes;
+        }
+
+        @Override
+        public void close() {
+            release(stripes, stripes.length);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.login_auth_api.infra.security;
+
+import com.example.login_auth_api.domain.user.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Tokens já verificados e o usuário resolvido para cada um, para o SecurityFilter não verificar a assinatura nem
+// buscar o usuário no banco a cada requisição. A chave é o SHA-256 do token (o token em si não fica em memória);
+// cada entrada expira no exp do token ou em api.security.auth-cache.ttl-minutes, o que vier antes, e é removida
+// quando a função ou a autorização do usuário muda
+@Component
+public class AuthenticationCache {
+
+    // Usuário e permissões de um token válido até expiresAt
+    public record CachedPrincipal(User user, List<GrantedAuthority> authorities, Instant expiresAt) {
+    }
+
+    // Entrada do cache: loadStartedAt (System.nanoTime) é o momento em que o usuário começou a ser buscado
+    private record Entry(CachedPrincipal principal, long loadStartedAt) {
+    }
+
+    private final Cache<String, Entry> cache;
+    private final Duration maxTtl;
+    // Momento (System.nanoTime) da última mudança de função/autorização de cada usuário. Uma busca que começou antes
+    // disso pode ter lido os dados antigos e ficado fora do removeIf (ainda não estava no cache), então é refeita
+    private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+
+    public AuthenticationCache(@Value("${api.security.auth-cache.max-size:10000}") long maxSize,
+                               @Value("${api.security.auth-cache.ttl-minutes:5}") long ttlMinutes) {
+        this.maxTtl = Duration.ofMinutes(ttlMinutes);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry value, long currentTime) {
+                        return timeToLive(value.principal()).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry value, long currentTime, long currentDuration) {
+                        return timeToLive(value.principal()).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // Retorna o usuário do token, chamando o loader só na primeira vez (ou depois de expirar/ser removido).
+    // Se o loader retornar null (token inválido) nada é guardado
+    public CachedPrincipal get(String token, Function<String, CachedPrincipal> loader) {
+        String key = hash(token);
+        Entry entry = cache.get(key, k -> load(token, loader));
+        if (entry != null && isStale(entry)) {
+            cache.asMap().remove(key, entry);
+            entry = cache.get(key, k -> load(token, loader));
+        }
+        return entry == null ? null : entry.principal();
+    }
+
+    // Remove os tokens do usuário, para a próxima requisição buscar a função e a autorização atualizadas
+    public void invalidateUser(String userId) {
+        invalidatedAt.put(userId, System.nanoTime());
+        cache.asMap().values().removeIf(entry -> userId.equals(entry.principal().user().getId()));
+    }
+
+    private Entry load(String token, Function<String, CachedPrincipal> loader) {
+        long startedAt = System.nanoTime();
+        CachedPrincipal principal = loader.apply(token);
+        return principal == null ? null : new Entry(principal, startedAt);
+    }
+
+    private boolean isStale(Entry entry) {
+        Long invalidated = invalidatedAt.get(entry.principal().user().getId());
+        return invalidated != null && invalidated - entry.loadStartedAt() >= 0;
+    }
+
+    private Duration timeToLive(CachedPrincipal principal) {
+        Duration untilExpiration = Duration.between(Instant.now(), principal.expiresAt());
+        if (untilExpiration.isNegative()) {
+            return Duration.ZERO;
+        }
+        return untilExpiration.compareTo(maxTtl) < 0 ? untilExpiration : maxTtl;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 é obrigatório em toda JVM
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.login_auth_api.infra.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,6 +32,9 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authorize -> authorize
+                        //despacho assíncrono das respostas em streaming (CSV): a requisição já foi autorizada na chegada
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         //rotas de registro e login permitida para todos
                         .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                         .requestMatchers(HttpMethod.POST, "/auth/register").permitAll()
@@ -70,8 +74,10 @@ public class SecurityConfig {
 
                         //configuracoes de acesso pra rotas de vendas
                         .requestMatchers(HttpMethod.POST, "/sales").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/sales/batch").hasAnyRole("USER", "ADMIN")
                         .requestMatchers(HttpMethod.GET, "/sales").hasAnyRole("USER", "ADMIN")
                         .requestMatchers(HttpMethod.GET, "/sales/last-five-sales").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/sales/lock-metrics").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/sales/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/sales/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/sales/salesByDateRange/**").hasRole("ADMIN")
@@ -79,6 +85,11 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/reports/sales/**").hasRole( "ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/products/**").hasRole( "ADMIN")
                         //relatorios de numeros
+                        .requestMatchers(HttpMethod.GET, "/reports/dashboard").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/reports/rollup/rebuild").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/reports/cache-stats").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/reports/jobs").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/reports/jobs/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/sales-by-payment-method").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/gift-sales-count-month").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/sales-count-month").hasRole("ADMIN")
@@ -89,10 +100,12 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/reports/total-sales-this-month").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/total-sales-this-year").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/total-sales-by-month-last-six-months").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/reports/category-ranking").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/category-top-today").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/category-top-this-month").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/category-top-this-year").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/reports/sales-last-six-months").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/reports/sales-histogram").hasRole("ADMIN")
 
 
 
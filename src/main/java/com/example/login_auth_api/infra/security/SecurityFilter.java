@@ -1,6 +1,8 @@
 package com.example.login_auth_api.infra.security;
 
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.example.login_auth_api.domain.user.User;
+import com.example.login_auth_api.infra.security.AuthenticationCache.CachedPrincipal;
 import com.example.login_auth_api.repositories.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -8,13 +10,15 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.time.Instant;
+import java.util.List;
 
 @Component
 public class SecurityFilter extends OncePerRequestFilter {
@@ -22,21 +26,35 @@ public class SecurityFilter extends OncePerRequestFilter {
     TokenService tokenService;
     @Autowired
     UserRepository userRepository;
+    @Autowired
+    AuthenticationCache authenticationCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         var token = this.recoverToken(request);
-        var login = tokenService.validateToken(token);
 
-        if(login != null){
-            User user = userRepository.findByEmail(login).orElseThrow(() -> new RuntimeException("User Not Found"));
-            var authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
-            var authentication = new UsernamePasswordAuthenticationToken(user, null, authorities);
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        if(token != null){
+            // Token já visto: só a consulta ao cache, sem verificar a assinatura nem buscar o usuário de novo
+            CachedPrincipal principal = authenticationCache.get(token, this::loadPrincipal);
+            if(principal != null){
+                var authentication = new UsernamePasswordAuthenticationToken(principal.user(), null, principal.authorities());
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
         }
         filterChain.doFilter(request, response);
     }
 
+    // Verifica o token e busca o usuário; retorna null para token inválido ou expirado
+    private CachedPrincipal loadPrincipal(String token){
+        DecodedJWT decodedJWT = tokenService.verify(token);
+        if(decodedJWT == null) return null;
+
+        User user = userRepository.findByEmail(decodedJWT.getSubject()).orElseThrow(() -> new RuntimeException("User Not Found"));
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
+        Instant expiresAt = decodedJWT.getExpiresAtAsInstant() != null ? decodedJWT.getExpiresAtAsInstant() : Instant.MAX;
+        return new CachedPrincipal(user, authorities, expiresAt);
+    }
+
     private String recoverToken(HttpServletRequest request){
         var authHeader = request.getHeader("Authorization");
         if(authHeader == null) return null;
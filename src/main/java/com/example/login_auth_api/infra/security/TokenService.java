@@ -1,9 +1,11 @@
 package com.example.login_auth_api.infra.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import com.example.login_auth_api.domain.user.User;
@@ -14,15 +16,23 @@ import java.time.ZoneOffset;
 
 @Service
 public class TokenService {
-    @Value("${api.security.token.secret}")
-    private String secret;
+    private static final String ISSUER = "login-auth-api";
+
+    // Algoritmo e verificador são imutáveis e thread-safe: montados uma vez em vez de a cada token
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+
+    public TokenService(@Value("${api.security.token.secret}") String secret) {
+        this.algorithm = Algorithm.HMAC256(secret);
+        this.verifier = JWT.require(algorithm)
+                .withIssuer(ISSUER)
+                .build();
+    }
 
     public String generateToken(User user) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-
             return JWT.create()
-                    .withIssuer("login-auth-api")
+                    .withIssuer(ISSUER)
                     .withSubject(user.getEmail())
                     .withClaim("role", user.getRole().name())
                     .withClaim("name", user.getName())
@@ -35,40 +45,33 @@ public class TokenService {
         }
     }
 
-    // Retorna o e-mail do usuário se o token for válido, senão retorna null
-    public String validateToken(String token) {
+    // Retorna o token decodificado se a assinatura, o emissor e a expiração forem válidos, senão retorna null
+    public DecodedJWT verify(String token) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-            var decodedJWT = JWT.require(algorithm)
-                    .withIssuer("login-auth-api")
-                    .build()
-                    .verify(token);
-
-            return decodedJWT.getSubject(); // Retorna o email do usuário
-
+            return verifier.verify(token);
         } catch (JWTVerificationException exception) {
             return null;
         }
     }
 
+    // Retorna o e-mail do usuário se o token for válido, senão retorna null
+    public String validateToken(String token) {
+        DecodedJWT decodedJWT = verify(token);
+        return decodedJWT == null ? null : decodedJWT.getSubject(); // Retorna o email do usuário
+    }
+
     // Retorna um objeto com todas as informações do token
     public TokenValidationResponse getTokenValidationResponse(String token) {
-        try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-            var decodedJWT = JWT.require(algorithm)
-                    .withIssuer("login-auth-api")
-                    .build()
-                    .verify(token);
-
-            return new TokenValidationResponse(true,
-                    decodedJWT.getSubject(),
-                    decodedJWT.getClaim("role").asString(),
-                    decodedJWT.getClaim("name").asString(),
-                    decodedJWT.getClaim("userId").asString());
-
-        } catch (JWTVerificationException exception) {
+        DecodedJWT decodedJWT = verify(token);
+        if (decodedJWT == null) {
             return new TokenValidationResponse(false, null, null, null, null);
         }
+
+        return new TokenValidationResponse(true,
+                decodedJWT.getSubject(),
+                decodedJWT.getClaim("role").asString(),
+                decodedJWT.getClaim("name").asString(),
+                decodedJWT.getClaim("userId").asString());
     }
 
     private Instant generateExpirationDate() {
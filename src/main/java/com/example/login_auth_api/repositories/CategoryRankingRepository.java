@@ -0,0 +1,79 @@
+package com.example.login_auth_api.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Ranking das categorias mais vendidas: agrupado, ordenado e limitado no banco, retornando só as K primeiras
+@Repository
+public class CategoryRankingRepository {
+
+    // Métrica do ranking: linhas de item, unidades vendidas ou faturamento (quantidade x preço do produto na venda)
+    public enum Metric {
+        LINES("COUNT(*)", "line_count"),
+        UNITS("SUM(i.quantity)", "item_quantity"),
+        REVENUE("COALESCE(SUM(i.quantity * i.unit_price), 0)", "subtotal");
+
+        private final String saleItemsAggregate;
+        private final String rollupColumn;
+
+        Metric(String saleItemsAggregate, String rollupColumn) {
+            this.saleItemsAggregate = saleItemsAggregate;
+            this.rollupColumn = rollupColumn;
+        }
+
+        // Converte o parâmetro da rota (lines, units ou revenue)
+        public static Metric fromParam(String value) {
+            for (Metric metric : values()) {
+                if (metric.name().equalsIgnoreCase(value)) {
+                    return metric;
+                }
+            }
+            throw new IllegalArgumentException("Métrica inválida. Use lines, units ou revenue.");
+        }
+    }
+
+    public record CategoryTotal(String category, BigDecimal total) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CategoryRankingRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Ranking sobre os itens das vendas no intervalo (qualquer hora de início e fim)
+    public List<CategoryTotal> rankFromSales(LocalDateTime start, LocalDateTime end, Metric metric, Integer limit) {
+        String sql = "SELECT c.nome, " + metric.saleItemsAggregate + " AS total "
+                + "FROM sale_items i JOIN sales s ON s.id = i.sale_id "
+                + "JOIN products p ON p.id = i.product_id JOIN categories c ON c.id = p.category_id "
+                + "WHERE s.sale_date BETWEEN ? AND ? "
+                + "GROUP BY c.nome HAVING " + metric.saleItemsAggregate + " > 0 ORDER BY total DESC, c.nome";
+        return query(sql, limit, start, end);
+    }
+
+    // Ranking sobre os totais diários (daily_sales_rollup) entre os dias informados (inclusive)
+    public List<CategoryTotal> rankFromRollup(LocalDate from, LocalDate to, Metric metric, Integer limit) {
+        String sql = "SELECT c.nome, SUM(r." + metric.rollupColumn + ") AS total "
+                + "FROM daily_sales_rollup r JOIN categories c ON c.id = r.category_id "
+                + "WHERE r.sale_day BETWEEN ? AND ? "
+                + "GROUP BY c.nome HAVING SUM(r." + metric.rollupColumn + ") > 0 ORDER BY total DESC, c.nome";
+        return query(sql, limit, from, to);
+    }
+
+    private List<CategoryTotal> query(String sql, Integer limit, Object from, Object to) {
+        List<Object> args = new ArrayList<>(List.of(from, to));
+        if (limit != null) {
+            sql += " LIMIT ?";
+            args.add(limit);
+        }
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new CategoryTotal(rs.getString(1), rs.getBigDecimal(2)), args.toArray());
+    }
+}
@@ -1,10 +1,19 @@
 package com.example.login_auth_api.repositories;
 
 import com.example.login_auth_api.domain.products.Product;
+import com.example.login_auth_api.dto.ProductRowDTO;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, String> {
 
@@ -17,4 +26,27 @@ public interface ProductRepository extends JpaRepository<Product, String> {
     boolean existsByCategoryId(String category);
 
     long countByDeletedFalse();
+
+    // Paginação por keyset (created_at, id) dos produtos não deletados
+    @Query("select p from Product p join fetch p.category where p.deleted = false order by p.createdAt desc, p.id desc")
+    List<Product> findActivePage(Pageable pageable);
+
+    @Query("select p from Product p join fetch p.category where p.deleted = false "
+            + "and p.createdAt <= :createdAt and (p.createdAt < :createdAt or p.id < :id) "
+            + "order by p.createdAt desc, p.id desc")
+    List<Product> findActivePageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") String id, Pageable pageable);
+
+    // Busca os produtos (já com a categoria) de uma lista de IDs em uma única consulta
+    @Query("select p from Product p join fetch p.category where p.id in :ids")
+    List<Product> findAllWithCategoryByIdIn(@Param("ids") Collection<String> ids);
+
+    // Exportação dos produtos em stream, uma linha por tamanho, com os filtros opcionais aplicados no banco.
+    // Deve ser lida dentro de uma transação e fechada no fim (try-with-resources)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.login_auth_api.dto.ProductRowDTO("
+            + "p.id, p.name, c.id, c.nome, p.cost, p.price, p.quantity, p.deleted, p.quantitySold, z.id, z.size, z.quantity) "
+            + "from Product p join p.category c left join p.sizes z "
+            + "where (:deleted is null or p.deleted = :deleted) and (:categoryId is null or c.id = :categoryId) "
+            + "order by p.createdAt desc, p.id desc, z.id")
+    Stream<ProductRowDTO> streamReportRows(@Param("deleted") Boolean deleted, @Param("categoryId") String categoryId);
 }
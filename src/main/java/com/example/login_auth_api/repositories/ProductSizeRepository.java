@@ -4,8 +4,13 @@ import com.example.login_auth_api.domain.products.ProductSize;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ProductSizeRepository extends JpaRepository<ProductSize, String> {
+
+    // Busca os tamanhos de uma lista de IDs em uma única consulta
+    List<ProductSize> findAllByIdIn(Collection<String> ids);
 }
@@ -1,20 +1,98 @@
 package com.example.login_auth_api.repositories;
 
 import com.example.login_auth_api.domain.sales.Sale;
+import com.example.login_auth_api.dto.SaleRowDTO;
+import com.example.login_auth_api.dto.SalesPerDayDTO;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface SaleRepository extends JpaRepository<Sale, String> {
-    List<Sale> findBySaleDateBetween(LocalDateTime startDate, LocalDateTime endDate);
-    long countByIsGiftTrueAndSaleDateBetween(LocalDateTime startDate, LocalDateTime endDate);
-    long countByIsGiftFalseAndSaleDateBetween(LocalDateTime startDate, LocalDateTime endDate);
-    List<Sale> findTop5ByOrderBySaleDateDesc();
+
+    // Projeção das listagens: seleciona só as colunas usadas no SaleDTO, uma linha por item
+    String SALE_ROWS = "select new com.example.login_auth_api.dto.SaleRowDTO("
+            + "s.id, s.saleDate, s.totalAmount, s.observation, s.paymentMethod, s.discount, s.subtotal, s.isGift, s.idempotencyKey, "
+            + "u.id, u.name, i.id, p.id, p.name, p.price, z.id, z.size, i.quantity) "
+            + "from Sale s join s.user u left join s.items i left join i.product p left join i.size z ";
+
+    // Busca pela chave de idempotência enviada na criação da venda
+    Optional<Sale> findByIdempotencyKey(String idempotencyKey);
+    List<Sale> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
+    // IDs das vendas mais recentes; o limite é aplicado no banco (buscar itens junto faria o limite em memória)
+    @Query("select s.id from Sale s order by s.saleDate desc, s.id desc")
+    List<String> findRecentIds(Pageable pageable);
+
+    // Próxima página por keyset (sale_date, id): começa logo após o cursor, usando o índice em vez de OFFSET.
+    // O "s.saleDate <= :saleDate" delimita a faixa do índice; o restante só desempata vendas no mesmo instante
+    @Query("select s.id from Sale s where s.saleDate <= :saleDate and (s.saleDate < :saleDate or s.id < :id) "
+            + "order by s.saleDate desc, s.id desc")
+    List<String> findRecentIdsAfter(@Param("saleDate") LocalDateTime saleDate, @Param("id") String id, Pageable pageable);
+
+    //Consultas de listagem em projeção (somente leitura)
+    @Query(SALE_ROWS + "where s.id = :id")
+    List<SaleRowDTO> findRowsById(@Param("id") String id);
+
+    @Query(SALE_ROWS + "where s.id in :ids order by s.saleDate desc, s.id desc")
+    List<SaleRowDTO> findRowsByIdIn(@Param("ids") Collection<String> ids);
+
+    @Query(SALE_ROWS + "order by s.saleDate desc, s.id desc")
+    List<SaleRowDTO> findAllRows();
+
+    @Query(SALE_ROWS + "where s.saleDate between :start and :end order by s.saleDate desc, s.id desc")
+    List<SaleRowDTO> findRowsBySaleDateBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
     // Busca por intervalo de datas e status isGift.
-    List<Sale> findBySaleDateBetweenAndIsGift(LocalDateTime start, LocalDateTime end, Boolean isGift);
+    @Query(SALE_ROWS + "where s.saleDate between :start and :end and s.isGift = :isGift order by s.saleDate desc, s.id desc")
+    List<SaleRowDTO> findRowsBySaleDateBetweenAndIsGift(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("isGift") Boolean isGift);
+
     // Busca todas as vendas com status isGift.
-    List<Sale> findByIsGift(Boolean isGift);
-    List<Sale> findAllByOrderBySaleDateDesc();
+    @Query(SALE_ROWS + "where s.isGift = :isGift order by s.saleDate desc, s.id desc")
+    List<SaleRowDTO> findRowsByIsGift(@Param("isGift") Boolean isGift);
+
+    // Vendas por dia, do dia mais recente para o mais antigo, nos mesmos filtros das listagens.
+    // Usado para dividir relatórios grandes em partes com quantidades parecidas
+    String SALES_PER_DAY = "select new com.example.login_auth_api.dto.SalesPerDayDTO(cast(s.saleDate as LocalDate), count(s)) from Sale s ";
+    String SALES_PER_DAY_ORDER = " group by cast(s.saleDate as LocalDate) order by cast(s.saleDate as LocalDate) desc";
+
+    @Query(SALES_PER_DAY + SALES_PER_DAY_ORDER)
+    List<SalesPerDayDTO> countAllSalesPerDay();
+
+    @Query(SALES_PER_DAY + "where s.saleDate between :start and :end" + SALES_PER_DAY_ORDER)
+    List<SalesPerDayDTO> countSalesPerDayBySaleDateBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query(SALES_PER_DAY + "where s.saleDate between :start and :end and s.isGift = :isGift" + SALES_PER_DAY_ORDER)
+    List<SalesPerDayDTO> countSalesPerDayBySaleDateBetweenAndIsGift(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("isGift") Boolean isGift);
+
+    @Query(SALES_PER_DAY + "where s.isGift = :isGift" + SALES_PER_DAY_ORDER)
+    List<SalesPerDayDTO> countSalesPerDayByIsGift(@Param("isGift") Boolean isGift);
+
+    // Mesmas consultas em stream para as exportações: o banco envia as linhas aos poucos (fetch size), sem carregar
+    // tudo em memória. Devem ser lidas dentro de uma transação e fechadas no fim (try-with-resources)
+    String STREAM_FETCH_SIZE = "500";
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(SALE_ROWS + "order by s.saleDate desc, s.id desc")
+    Stream<SaleRowDTO> streamAllRows();
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(SALE_ROWS + "where s.saleDate between :start and :end order by s.saleDate desc, s.id desc")
+    Stream<SaleRowDTO> streamRowsBySaleDateBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(SALE_ROWS + "where s.saleDate between :start and :end and s.isGift = :isGift order by s.saleDate desc, s.id desc")
+    Stream<SaleRowDTO> streamRowsBySaleDateBetweenAndIsGift(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("isGift") Boolean isGift);
 
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(SALE_ROWS + "where s.isGift = :isGift order by s.saleDate desc, s.id desc")
+    Stream<SaleRowDTO> streamRowsByIsGift(@Param("isGift") Boolean isGift);
 }
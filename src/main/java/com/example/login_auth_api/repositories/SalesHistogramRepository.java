@@ -0,0 +1,67 @@
+package com.example.login_auth_api.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Quantidade de vendas e subtotal agrupados por intervalo de tempo (hora, dia, semana ou mês), agrupados no banco com date_trunc
+@Repository
+public class SalesHistogramRepository {
+
+    public enum Bucket {
+        HOUR("hour"),
+        DAY("day"),
+        WEEK("week"),
+        MONTH("month");
+
+        private final String datePart;
+
+        Bucket(String datePart) {
+            this.datePart = datePart;
+        }
+
+        // Converte o parâmetro da rota (hour, day, week ou month)
+        public static Bucket fromParam(String value) {
+            for (Bucket bucket : values()) {
+                if (bucket.name().equalsIgnoreCase(value)) {
+                    return bucket;
+                }
+            }
+            throw new IllegalArgumentException("Intervalo inválido. Use hour, day, week ou month.");
+        }
+    }
+
+    public record BucketTotals(LocalDateTime bucketStart, long salesCount, BigDecimal subtotal) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SalesHistogramRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Agrupa as vendas no intervalo (qualquer hora de início e fim); só retorna os intervalos com vendas
+    public List<BucketTotals> fromSales(LocalDateTime start, LocalDateTime end, Bucket bucket) {
+        return jdbcTemplate.query(
+                "SELECT date_trunc('" + bucket.datePart + "', sale_date) AS bucket_start, COUNT(*), COALESCE(SUM(subtotal), 0) "
+                        + "FROM sales WHERE sale_date BETWEEN ? AND ? GROUP BY bucket_start ORDER BY bucket_start",
+                (rs, rowNum) -> new BucketTotals(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2), rs.getBigDecimal(3)),
+                start, end);
+    }
+
+    // Agrupa os totais diários (daily_sales_rollup) entre os dias informados; não serve para intervalos de hora
+    public List<BucketTotals> fromRollup(LocalDate from, LocalDate to, Bucket bucket) {
+        return jdbcTemplate.query(
+                "SELECT date_trunc('" + bucket.datePart + "', CAST(sale_day AS timestamp)) AS bucket_start, "
+                        + "COALESCE(SUM(sale_count), 0), COALESCE(SUM(subtotal), 0) FROM daily_sales_rollup "
+                        + "WHERE category_id = ? AND sale_day BETWEEN ? AND ? GROUP BY bucket_start ORDER BY bucket_start",
+                (rs, rowNum) -> new BucketTotals(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2), rs.getBigDecimal(3)),
+                SalesRollupRepository.ALL_CATEGORIES, from, to);
+    }
+}
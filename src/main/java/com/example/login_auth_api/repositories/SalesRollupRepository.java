@@ -0,0 +1,169 @@
+package com.example.login_auth_api.repositories;
+
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.domain.sales.Sale;
+import com.example.login_auth_api.domain.sales.SaleItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Tabela daily_sales_rollup: totais diários por (dia, método de pagamento, presente, categoria).
+// A linha com categoria "*" guarda os totais da venda; as demais, os totais dos itens de cada categoria
+@Repository
+public class SalesRollupRepository {
+
+    public static final String ALL_CATEGORIES = "*";
+
+    private static final String UPSERT = "INSERT INTO daily_sales_rollup "
+            + "(sale_day, payment_method, is_gift, category_id, sale_count, line_count, item_quantity, subtotal) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (sale_day, payment_method, is_gift, category_id) DO UPDATE SET "
+            + "sale_count = daily_sales_rollup.sale_count + EXCLUDED.sale_count, "
+            + "line_count = daily_sales_rollup.line_count + EXCLUDED.line_count, "
+            + "item_quantity = daily_sales_rollup.item_quantity + EXCLUDED.item_quantity, "
+            + "subtotal = daily_sales_rollup.subtotal + EXCLUDED.subtotal";
+
+    private static final String REBUILD_SALES = "INSERT INTO daily_sales_rollup "
+            + "(sale_day, payment_method, is_gift, category_id, sale_count, line_count, item_quantity, subtotal) "
+            + "SELECT CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false), '" + ALL_CATEGORIES + "', "
+            + "COUNT(*), COALESCE(SUM(i.line_count), 0), COALESCE(SUM(i.item_quantity), 0), COALESCE(SUM(s.subtotal), 0) "
+            + "FROM sales s "
+            + "LEFT JOIN (SELECT sale_id, COUNT(*) AS line_count, SUM(quantity) AS item_quantity "
+            + "FROM sale_items GROUP BY sale_id) i ON i.sale_id = s.id "
+            + "GROUP BY CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false)";
+
+    private static final String REBUILD_CATEGORIES = "INSERT INTO daily_sales_rollup "
+            + "(sale_day, payment_method, is_gift, category_id, sale_count, line_count, item_quantity, subtotal) "
+            + "SELECT CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false), p.category_id, "
+            + "COUNT(DISTINCT s.id), COUNT(*), SUM(i.quantity), COALESCE(SUM(i.quantity * i.unit_price), 0) "
+            + "FROM sale_items i JOIN sales s ON s.id = i.sale_id JOIN products p ON p.id = i.product_id "
+            + "GROUP BY CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false), p.category_id";
+
+    public record Totals(long salesCount, BigDecimal subtotal) {
+    }
+
+    private record Key(LocalDate saleDay, String paymentMethod, boolean isGift, String categoryId) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int result = saleDay.compareTo(other.saleDay);
+            if (result == 0) result = paymentMethod.compareTo(other.paymentMethod);
+            if (result == 0) result = Boolean.compare(isGift, other.isGift);
+            if (result == 0) result = categoryId.compareTo(other.categoryId);
+            return result;
+        }
+    }
+
+    private static final class Delta {
+        long saleCount;
+        long lineCount;
+        long itemQuantity;
+        BigDecimal subtotal = BigDecimal.ZERO;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SalesRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Soma as vendas (já com itens e produtos carregados) aos totais diários; deve rodar na transação que grava as vendas
+    public void add(Collection<Sale> sales) {
+        apply(sales, 1);
+    }
+
+    // Retira as vendas dos totais diários; deve rodar na transação que exclui as vendas
+    public void subtract(Collection<Sale> sales) {
+        apply(sales, -1);
+    }
+
+    private void apply(Collection<Sale> sales, int sign) {
+        // Agrupa as diferenças por linha da tabela; ordenadas para que transações concorrentes travem as linhas na mesma ordem
+        Map<Key, Delta> deltas = new TreeMap<>();
+        for (Sale sale : sales) {
+            LocalDate saleDay = sale.getSaleDate().toLocalDate();
+            String paymentMethod = sale.getPaymentMethod().name();
+            boolean isGift = Boolean.TRUE.equals(sale.getIsGift());
+
+            Delta saleDelta = deltas.computeIfAbsent(new Key(saleDay, paymentMethod, isGift, ALL_CATEGORIES), key -> new Delta());
+            saleDelta.saleCount += sign;
+            if (sale.getSubtotal() != null) {
+                saleDelta.subtotal = saleDelta.subtotal.add(sale.getSubtotal().multiply(BigDecimal.valueOf(sign)));
+            }
+
+            Set<String> categoriesOfSale = new HashSet<>();
+            for (SaleItem item : sale.getItems()) {
+                saleDelta.lineCount += sign;
+                saleDelta.itemQuantity += (long) sign * item.getQuantity();
+
+                String categoryId = item.getProduct().getCategory().getId();
+                Delta categoryDelta = deltas.computeIfAbsent(new Key(saleDay, paymentMethod, isGift, categoryId), key -> new Delta());
+                if (categoriesOfSale.add(categoryId)) {
+                    categoryDelta.saleCount += sign;
+                }
+                categoryDelta.lineCount += sign;
+                categoryDelta.itemQuantity += (long) sign * item.getQuantity();
+                // Preço do momento da venda: a exclusão retira o mesmo valor que a criação somou
+                if (item.getUnitPrice() != null) {
+                    categoryDelta.subtotal = categoryDelta.subtotal.add(
+                            item.getUnitPrice().multiply(BigDecimal.valueOf((long) sign * item.getQuantity())));
+                }
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> rows.add(new Object[]{key.saleDay(), key.paymentMethod(), key.isGift(), key.categoryId(),
+                delta.saleCount, delta.lineCount, delta.itemQuantity, delta.subtotal}));
+        jdbcTemplate.batchUpdate(UPSERT, rows);
+    }
+
+    // Recalcula a tabela inteira a partir das vendas. Deve rodar em uma transação: o LOCK bloqueia as gravações
+    // incrementais até o commit, para que nenhuma venda seja somada duas vezes ou perdida durante a recarga
+    public void rebuild() {
+        jdbcTemplate.execute("LOCK TABLE daily_sales_rollup IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM daily_sales_rollup");
+        jdbcTemplate.update(REBUILD_SALES);
+        jdbcTemplate.update(REBUILD_CATEGORIES);
+    }
+
+    // Quantidade de vendas e subtotal entre os dias informados (inclusive)
+    public Totals totals(LocalDate from, LocalDate to) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(sale_count), 0), COALESCE(SUM(subtotal), 0) FROM daily_sales_rollup "
+                        + "WHERE category_id = ? AND sale_day BETWEEN ? AND ?",
+                (rs, rowNum) -> new Totals(rs.getLong(1), rs.getBigDecimal(2)),
+                ALL_CATEGORIES, from, to);
+    }
+
+    // Quantidade de vendas para presente (ou não) entre os dias informados
+    public long countByGift(LocalDate from, LocalDate to, boolean isGift) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(sale_count), 0) FROM daily_sales_rollup "
+                        + "WHERE category_id = ? AND is_gift = ? AND sale_day BETWEEN ? AND ?",
+                Long.class, ALL_CATEGORIES, isGift, from, to);
+        return count != null ? count : 0L;
+    }
+
+    // Quantidade de vendas por método de pagamento entre os dias informados
+    public Map<PaymentMethod, Long> countByPaymentMethod(LocalDate from, LocalDate to) {
+        Map<PaymentMethod, Long> counts = new TreeMap<>();
+        jdbcTemplate.query(
+                "SELECT payment_method, SUM(sale_count) FROM daily_sales_rollup "
+                        + "WHERE category_id = ? AND sale_day BETWEEN ? AND ? GROUP BY payment_method",
+                rs -> {
+                    counts.put(PaymentMethod.valueOf(rs.getString(1)), rs.getLong(2));
+                },
+                ALL_CATEGORIES, from, to);
+        return counts;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.login_auth_api.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Atualizações de estoque feitas direto no banco, de forma atômica (sem ler-modificar-gravar em Java)
+@Repository
+public class StockRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public StockRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Baixa o estoque dos tamanhos somente se houver quantidade suficiente, em um único lote.
+    // Retorna os IDs dos tamanhos sem estoque suficiente (nenhuma linha afetada)
+    public List<String> decrementSizes(Map<String, Integer> quantityBySize) {
+        // Ordena pelo ID para que vendas concorrentes travem as linhas sempre na mesma ordem (evita deadlock)
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(new TreeMap<>(quantityBySize).entrySet());
+
+        int[] updatedRows = jdbcTemplate.batchUpdate(
+                "UPDATE product_sizes SET quantity = quantity - ? WHERE id = ? AND quantity >= ?",
+                entries.stream()
+                        .map(entry -> new Object[]{entry.getValue(), entry.getKey(), entry.getValue()})
+                        .toList());
+
+        List<String> withoutStock = new ArrayList<>();
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == 0) {
+                withoutStock.add(entries.get(i).getKey());
+            }
+        }
+        return withoutStock;
+    }
+
+    // Baixa a quantidade dos produtos e soma a quantidade vendida, em um único lote
+    public void decrementProducts(Map<String, Integer> quantityByProduct) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(
+                "UPDATE products SET quantity = quantity - ?, quantity_sold = quantity_sold + ?, updated_at = ? WHERE id = ?",
+                new TreeMap<>(quantityByProduct).entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue(), entry.getValue(), now, entry.getKey()})
+                        .toList());
+    }
+
+    // Devolve ao estoque a quantidade dos tamanhos (usado ao excluir uma venda)
+    public void restoreSizes(Map<String, Integer> quantityBySize) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE product_sizes SET quantity = quantity + ? WHERE id = ?",
+                new TreeMap<>(quantityBySize).entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                        .toList());
+    }
+
+    // Devolve a quantidade dos produtos e reduz a quantidade vendida, sem deixá-la negativa
+    public void restoreProducts(Map<String, Integer> quantityByProduct) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(
+                "UPDATE products SET quantity = quantity + ?, quantity_sold = GREATEST(quantity_sold - ?, 0), updated_at = ? WHERE id = ?",
+                new TreeMap<>(quantityByProduct).entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue(), entry.getValue(), now, entry.getKey()})
+                        .toList());
+    }
+}
@@ -1,41 +1,75 @@
 package com.example.login_auth_api.services;
 
 import com.itextpdf.kernel.events.PdfDocumentEvent;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfPage;
-import com.itextpdf.layout.Document;
-import com.itextpdf.layout.element.Paragraph;
 
 import com.itextpdf.kernel.events.IEventHandler;
 import com.itextpdf.kernel.events.Event;
-import com.itextpdf.layout.properties.TextAlignment;
-import com.itextpdf.layout.properties.VerticalAlignment;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
 
-//Método auxiliar para enumerar as paginas dos relatorios em pdf
+//Método auxiliar para enumerar as paginas dos relatorios em pdf.
+//Escreve direto no canvas da página com a fonte do relatório, sem criar um Document (e uma fonte) por página.
+//O total de páginas só é conhecido no fim, então cada página desenha um mesmo PdfFormXObject vazio no lugar dele
+//e writeTotal preenche esse objeto uma única vez, antes de fechar o documento
 public class PageNumberHandler implements IEventHandler {
+
+    private static final float FONT_SIZE = 12;
+    // Espaço reservado para o total: até 5 dígitos
+    private static final String TOTAL_WIDTH_SAMPLE = "00000";
+
+    private final PdfFont font;
+    private final PdfFormXObject totalPlaceholder;
+
+    public PageNumberHandler(PdfFont font) {
+        this.font = font;
+        this.totalPlaceholder = new PdfFormXObject(new Rectangle(0, 0, font.getWidth(TOTAL_WIDTH_SAMPLE, FONT_SIZE), FONT_SIZE));
+    }
+
     @Override
     public void handleEvent(Event event) {
         PdfDocumentEvent docEvent = (PdfDocumentEvent) event;
         PdfDocument pdf = docEvent.getDocument();
         PdfPage page = docEvent.getPage();
 
-        int pageNumber = pdf.getPageNumber(page);
-        int totalPages = pdf.getNumberOfPages();
+        addFooter(pdf, page, pdf.getPageNumber(page));
+    }
 
-        String text = String.format("Page %d of %d", pageNumber, totalPages);
+    // Desenha "Page N of" e o espaço do total na página; usado pelo evento de fim de página e para numerar de novo
+    // as páginas de PDFs juntados
+    public void addFooter(PdfDocument pdf, PdfPage page, int pageNumber) {
+        String text = String.format("Page %d of ", pageNumber);
 
         // Obtém as dimensões da página
-        float pageWidth = pdf.getDefaultPageSize().getWidth();
-        float pageHeight = pdf.getDefaultPageSize().getHeight();
+        Rectangle pageSize = page.getPageSize();
 
-        // Define a posição do texto no canto inferior direito
-        float x = pageWidth - 50;  // Margem a partir da borda direita
-        float y = 20;             // Margem a partir da borda inferior
+        // Define a posição do rodapé no canto inferior direito: o texto termina onde começa o espaço do total
+        float totalX = pageSize.getWidth() - 50 - totalPlaceholder.getWidth();  // Margem a partir da borda direita
+        float x = totalX - font.getWidth(text, FONT_SIZE);
+        float y = 20;                                                          // Margem a partir da borda inferior
 
-        Document document = new Document(pdf);
-        Paragraph p = new Paragraph(text)
-                .setTextAlignment(TextAlignment.RIGHT)
-                .setVerticalAlignment(VerticalAlignment.BOTTOM);
+        PdfCanvas canvas = new PdfCanvas(page.newContentStreamAfter(), page.getResources(), pdf);
+        canvas.beginText()
+                .setFontAndSize(font, FONT_SIZE)
+                .moveText(x, y)
+                .showText(text)
+                .endText();
+        canvas.addXObjectAt(totalPlaceholder, totalX, y);
+        canvas.release();
+    }
 
-        document.showTextAligned(p, x, y, pdf.getPageNumber(page), TextAlignment.RIGHT, VerticalAlignment.BOTTOM, 0);    }
+    // Escreve o total de páginas no espaço reservado de todas as páginas; chamar depois do último conteúdo e
+    // antes de fechar o documento
+    public void writeTotal(PdfDocument pdf) {
+        PdfCanvas canvas = new PdfCanvas(totalPlaceholder, pdf);
+        canvas.beginText()
+                .setFontAndSize(font, FONT_SIZE)
+                .moveText(0, 0)
+                .showText(String.valueOf(pdf.getNumberOfPages()))
+                .endText()
+                .release();
+    }
 }
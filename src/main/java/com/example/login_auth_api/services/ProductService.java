@@ -3,17 +3,23 @@ package com.example.login_auth_api.services;
 import com.example.login_auth_api.domain.products.Product;
 import com.example.login_auth_api.domain.products.ProductSize;
 import com.example.login_auth_api.domain.categories.Category;
+import com.example.login_auth_api.dto.CursorPageDTO;
+import com.example.login_auth_api.dto.KeysetCursor;
 import com.example.login_auth_api.dto.ProductDTO;
+import com.example.login_auth_api.dto.ProductRowDTO;
 import com.example.login_auth_api.dto.ProductSizeDTO;
 import com.example.login_auth_api.repositories.ProductRepository;
 import com.example.login_auth_api.repositories.CategoryRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
@@ -116,11 +122,66 @@ public class ProductService {
         return productRepository.findAll();
     }
 
+    // Percorre os produtos do relatório um a um (filtros opcionais: deletado e categoria), sem carregar a lista inteira:
+    // as linhas chegam do banco aos poucos e cada produto é entregue assim que todos os seus tamanhos foram lidos
+    @Transactional
+    public void forEachProductForReport(Boolean deleted, String categoryId, Consumer<ProductDTO> action) {
+        String category = categoryId == null || categoryId.isEmpty() ? null : categoryId;
+        try (Stream<ProductRowDTO> rows = productRepository.streamReportRows(deleted, category)) {
+            // As linhas vêm ordenadas por produto, então os tamanhos de um produto chegam sempre juntos
+            ProductDTO current = null;
+            for (Iterator<ProductRowDTO> iterator = rows.iterator(); iterator.hasNext(); ) {
+                ProductRowDTO row = iterator.next();
+                if (current == null || !current.getId().equals(row.productId())) {
+                    if (current != null) {
+                        action.accept(current);
+                    }
+                    current = row.toProductDTO();
+                }
+                if (row.sizeId() != null) {
+                    current.getSizes().add(row.toSizeDTO());
+                }
+            }
+            if (current != null) {
+                action.accept(current);
+            }
+        }
+    }
+
+    // Lista os produtos do relatório em PDF com os mesmos filtros, em uma única consulta
+    @Transactional
+    public List<ProductDTO> listProductsForReport(Boolean deleted, String categoryId) {
+        List<ProductDTO> products = new ArrayList<>();
+        forEachProductForReport(deleted, categoryId, products::add);
+        return products;
+    }
+
     // Método para buscar todos os produtos nao deletados
     public List<Product> getAllProducts() {
         return productRepository.findByDeletedFalseOrderByCreatedAtDesc();
     }
 
+    // Método para buscar uma página de produtos não deletados a partir do cursor da página anterior
+    public CursorPageDTO<Product> getProductsPage(int limit, String cursor) {
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<Product> products;
+        if (cursor == null || cursor.isBlank()) {
+            products = productRepository.findActivePage(page);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            products = productRepository.findActivePageAfter(position.timestamp(), position.id(), page);
+        }
+
+        // Foi buscado um produto a mais que o limite só para saber se existe próxima página
+        String nextCursor = null;
+        if (products.size() > limit) {
+            products = products.subList(0, limit);
+            Product last = products.get(limit - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPageDTO<>(products, nextCursor);
+    }
+
     // Método para buscar todos os produtos deletados
     public List<Product> getAllProductsDeleted() {
         return productRepository.findByDeletedTrueOrderByCreatedAtDesc();
@@ -7,17 +7,48 @@ import com.example.login_auth_api.domain.products.Product;
 import com.example.login_auth_api.domain.products.ProductSize;
 import com.example.login_auth_api.domain.user.User;
 import com.example.login_auth_api.exceptions.CustomException;
+import com.example.login_auth_api.infra.locks.StripedLockService;
+import com.example.login_auth_api.dto.CursorPageDTO;
+import com.example.login_auth_api.dto.KeysetCursor;
+import com.example.login_auth_api.dto.SaleBatchResultDTO;
 import com.example.login_auth_api.dto.SaleDTO;
+import com.example.login_auth_api.dto.SaleRowDTO;
 import com.example.login_auth_api.repositories.*;
+import com.example.login_auth_api.services.events.SaleChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class SaleService {
@@ -35,12 +66,237 @@ public class SaleService {
     private ProductSizeRepository productSizeRepository;
 
     @Autowired
-    private SaleItemRepository saleItemRepository;
+    private StockRepository stockRepository;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StripedLockService stripedLockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Quantidade de vendas gravadas por transação na criação em lote
+    @Value("${sales.batch.chunk-size:50}")
+    private int batchChunkSize;
+
+    @Value("${sales.idempotency.cache-size:10000}")
+    private long idempotencyCacheSize;
+
+    @Value("${sales.idempotency.ttl-minutes:60}")
+    private long idempotencyTtlMinutes;
+
+    // Vendas já criadas por chave de idempotência; a coluna única em sales garante a deduplicação após um restart
+    private Cache<String, SaleDTO> idempotencyCache;
+
+    @PostConstruct
+    void initIdempotencyCache() {
+        idempotencyCache = Caffeine.newBuilder()
+                .maximumSize(idempotencyCacheSize)
+                .expireAfterWrite(Duration.ofMinutes(idempotencyTtlMinutes))
+                .build();
+    }
 
     //Método para criar uma venda
-    @Transactional
     public Sale createSale(SaleDTO saleDTO) {
-        System.out.println("Data recebida: " + saleDTO.getSaleDate());
+        // Trava em memória os tamanhos vendidos antes de abrir a transação, assim vendas simultâneas
+        // do mesmo tamanho esperam aqui e não segurando conexões e linhas travadas no banco
+        try (StripedLockService.Lease ignored = stripedLockService.acquire(collectSizeIds(List.of(saleDTO)))) {
+            return transactionTemplate.execute(status -> persistSale(saleDTO));
+        }
+    }
+
+    // Método para criar uma venda respeitando a chave de idempotência: a repetição de uma requisição
+    // devolve a venda original sem abrir transação nem mexer no estoque
+    public SaleDTO createSaleIdempotent(SaleDTO saleDTO) {
+        String key = saleDTO.getIdempotencyKey();
+        if (key == null) {
+            return convertToDTO(createSale(saleDTO));
+        }
+
+        SaleDTO cached = idempotencyCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        SaleDTO result;
+        try (StripedLockService.Lease ignored = stripedLockService.acquire(collectSizeIds(List.of(saleDTO)))) {
+            // persistSale devolve a venda já gravada com a mesma chave, se existir
+            result = transactionTemplate.execute(status -> convertToDTO(persistSale(saleDTO)));
+        } catch (DataIntegrityViolationException e) {
+            // Outra instância gravou a mesma chave ao mesmo tempo: devolve a venda que ela criou
+            result = transactionTemplate.execute(status -> saleRepository.findByIdempotencyKey(key)
+                    .map(this::convertToDTO)
+                    .orElseThrow(() -> e));
+        }
+
+        idempotencyCache.put(key, result);
+        return result;
+    }
+
+    // Método para criar várias vendas de uma vez (vendas enfileiradas pelos terminais offline).
+    // As vendas são gravadas em blocos; uma venda inválida não desfaz as demais do bloco
+    public List<SaleBatchResultDTO> createSalesBatch(List<SaleDTO> saleDTOs) {
+        List<SaleBatchResultDTO> results = new ArrayList<>(saleDTOs.size());
+        for (int start = 0; start < saleDTOs.size(); start += batchChunkSize) {
+            List<SaleDTO> chunk = saleDTOs.subList(start, Math.min(start + batchChunkSize, saleDTOs.size()));
+            results.addAll(processChunk(chunk, start));
+        }
+        return results;
+    }
+
+    // Processa um bloco de vendas em uma única transação, com a baixa de estoque agrupada por tamanho
+    private List<SaleBatchResultDTO> processChunk(List<SaleDTO> chunk, int offset) {
+        StripedLockService.Lease lease;
+        try {
+            lease = stripedLockService.acquire(collectSizeIds(chunk));
+        } catch (CustomException e) {
+            // Tempo esgotado esperando as travas: só as vendas deste bloco falham, os blocos já gravados
+            // continuam no resultado e os próximos ainda são processados
+            List<SaleBatchResultDTO> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(SaleBatchResultDTO.failed(offset + i, e.getMessage()));
+            }
+            return results;
+        }
+
+        try (lease) {
+            try {
+                return transactionTemplate.execute(status -> persistChunk(chunk, offset));
+            } catch (RuntimeException e) {
+                // O estoque mudou entre a validação e a baixa (ex.: venda de outra instância) ou o banco falhou:
+                // o bloco foi desfeito, então cada venda é refeita na sua própria transação
+                List<SaleBatchResultDTO> results = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    SaleDTO saleDTO = chunk.get(i);
+                    try {
+                        Sale sale = transactionTemplate.execute(status -> persistSale(saleDTO));
+                        results.add(SaleBatchResultDTO.created(offset + i, sale.getId()));
+                    } catch (CustomException ex) {
+                        results.add(SaleBatchResultDTO.failed(offset + i, ex.getMessage()));
+                    } catch (RuntimeException ex) {
+                        results.add(SaleBatchResultDTO.failed(offset + i, "Ocorreu um erro interno ao processar a venda."));
+                    }
+                }
+                return results;
+            }
+        }
+    }
+
+    // Valida as vendas do bloco em memória, baixa o estoque agrupado e grava as vendas válidas
+    private List<SaleBatchResultDTO> persistChunk(List<SaleDTO> chunk, int offset) {
+        SaleLookup lookup = loadLookup(chunk);
+        // Estoque disponível por tamanho, compartilhado entre as vendas do bloco
+        Map<String, Integer> availableBySize = new HashMap<>();
+
+        // Vendas já gravadas em um envio anterior (mesma chave de idempotência) não são criadas de novo
+        Set<String> keys = chunk.stream()
+                .map(SaleDTO::getIdempotencyKey)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, String> existingSaleIds = keys.isEmpty() ? new HashMap<>() : saleRepository.findByIdempotencyKeyIn(keys).stream()
+                .collect(Collectors.toMap(Sale::getIdempotencyKey, Sale::getId));
+
+        SaleBatchResultDTO[] results = new SaleBatchResultDTO[chunk.size()];
+        Map<Integer, Sale> accepted = new LinkedHashMap<>();
+        // Posição da primeira venda aceita com cada chave, para repetições dentro do mesmo bloco
+        Map<String, Integer> acceptedIndexByKey = new HashMap<>();
+        Map<Integer, Integer> repeatedOf = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String key = chunk.get(i).getIdempotencyKey();
+            if (key != null && existingSaleIds.containsKey(key)) {
+                results[i] = SaleBatchResultDTO.created(offset + i, existingSaleIds.get(key));
+                continue;
+            }
+            if (key != null && acceptedIndexByKey.containsKey(key)) {
+                repeatedOf.put(i, acceptedIndexByKey.get(key));
+                continue;
+            }
+            try {
+                accepted.put(i, buildSale(chunk.get(i), lookup, availableBySize));
+                if (key != null) {
+                    acceptedIndexByKey.put(key, i);
+                }
+            } catch (CustomException e) {
+                results[i] = SaleBatchResultDTO.failed(offset + i, e.getMessage());
+            } catch (RuntimeException e) {
+                results[i] = SaleBatchResultDTO.failed(offset + i, "Ocorreu um erro interno ao processar a venda.");
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            decrementStock(accepted.values(), lookup);
+            saleRepository.saveAll(accepted.values());
+            salesRollupRepository.add(accepted.values());
+            eventPublisher.publishEvent(SaleChangedEvent.created(accepted.values()));
+        }
+        accepted.forEach((i, sale) -> results[i] = SaleBatchResultDTO.created(offset + i, sale.getId()));
+        repeatedOf.forEach((i, first) -> results[i] = SaleBatchResultDTO.created(offset + i, accepted.get(first).getId()));
+
+        return Arrays.asList(results);
+    }
+
+    // Valida e grava a venda; deve ser chamado dentro de uma transação
+    private Sale persistSale(SaleDTO saleDTO) {
+        // Repetição de uma venda já gravada: devolve a original
+        if (saleDTO.getIdempotencyKey() != null) {
+            Optional<Sale> existing = saleRepository.findByIdempotencyKey(saleDTO.getIdempotencyKey());
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+        }
+
+        SaleLookup lookup = loadLookup(List.of(saleDTO));
+        Sale sale = buildSale(saleDTO, lookup, new HashMap<>());
+        decrementStock(List.of(sale), lookup);
+
+        // Grava a venda e, em cascata, os seus itens: um único persist, com os inserts enviados em lote no flush.
+        // O ID (UUID) é gerado pelo Hibernate na própria aplicação, sem ida ao banco
+        Sale saved = saleRepository.save(sale);
+        // Soma a venda aos totais diários dos relatórios, na mesma transação, e avisa os números em memória
+        salesRollupRepository.add(List.of(saved));
+        eventPublisher.publishEvent(SaleChangedEvent.created(List.of(saved)));
+        return saved;
+    }
+
+    // Carrega de uma vez os usuários, produtos e tamanhos referenciados pelas vendas (uma consulta IN para cada)
+    private SaleLookup loadLookup(List<SaleDTO> saleDTOs) {
+        // Com open-in-view o mesmo EntityManager atravessa todas as transações da requisição (ex.: os blocos do
+        // lote); as baixas de estoque são feitas por JDBC e não atualizam os tamanhos já carregados, então as
+        // entidades são descartadas para a validação ler a quantidade atual do banco
+        entityManager.clear();
+
+        Set<String> userIds = saleDTOs.stream()
+                .map(SaleDTO::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> productIds = saleDTOs.stream()
+                .filter(saleDTO -> saleDTO.getItems() != null)
+                .flatMap(saleDTO -> saleDTO.getItems().stream())
+                .map(SaleDTO.SaleItemDTO::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<String, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<String, Product> products = productRepository.findAllWithCategoryByIdIn(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Map<String, ProductSize> sizes = productSizeRepository.findAllByIdIn(collectSizeIds(saleDTOs)).stream()
+                .collect(Collectors.toMap(ProductSize::getId, Function.identity()));
+
+        return new SaleLookup(users, products, sizes);
+    }
+
+    // Monta a venda com os itens e totais em memória, validando os dados e o estoque disponível.
+    // O estoque consumido só é descontado de availableBySize se a venda inteira for válida
+    private Sale buildSale(SaleDTO saleDTO, SaleLookup lookup, Map<String, Integer> availableBySize) {
         // Criação da venda com campos básicos
         Sale sale = new Sale();
         // Verifica se a data foi fornecida no DTO
@@ -49,12 +305,12 @@ public class SaleService {
         } else {
             sale.setSaleDate(LocalDateTime.now()); // Data atual como fallback
         }
-        System.out.println("Data recebida: " + saleDTO.getSaleDate());
 
         sale.setTotalAmount(BigDecimal.ZERO);
         sale.setObservation(saleDTO.getObservation());
         sale.setPaymentMethod(saleDTO.getPaymentMethod());
         sale.setIsGift(saleDTO.isIsGift());
+        sale.setIdempotencyKey(saleDTO.getIdempotencyKey());
 
         try {
             PaymentMethod paymentMethod = PaymentMethod.valueOf(String.valueOf(saleDTO.getPaymentMethod()));
@@ -71,8 +327,10 @@ public class SaleService {
         sale.setDiscount(discount);
 
         // Associa o usuário usando o UUID como String
-        User user = userRepository.findById(saleDTO.getUserId())
-                .orElseThrow(() -> new CustomException("Usuário não encontrado."));
+        User user = lookup.users().get(saleDTO.getUserId());
+        if (user == null) {
+            throw new CustomException("Usuário não encontrado.");
+        }
         sale.setUser(user);
 
         // Verifica se há pelo menos um produto na venda
@@ -80,35 +338,38 @@ public class SaleService {
             throw new CustomException("A venda deve conter pelo menos um produto.");
         }
 
-        // Salva a Sale primeiro para gerar um ID para a venda
-        sale = saleRepository.save(sale);
-
         BigDecimal totalAmount = BigDecimal.ZERO;
         BigDecimal subtotal = BigDecimal.ZERO;
+        // Quantidade consumida por tamanho pelos itens desta venda
+        Map<String, Integer> consumedBySize = new HashMap<>();
 
-        // Itera sobre os itens da venda para adicionar ao banco de dados
+        // Valida os itens em memória; a baixa do estoque é feita depois, de forma atômica no banco
         for (SaleDTO.SaleItemDTO itemDTO : saleDTO.getItems()) {
             // Verifica se a quantidade do produto é maior que zero
             if (itemDTO.getQuantity() == null || itemDTO.getQuantity() <= 0) {
                 throw new CustomException("A quantidade do produto deve ser maior que zero.");
             }
 
-            // Busca o produto pelo ID
-            Product product = productRepository.findById(itemDTO.getProductId())
-                    .orElseThrow(() -> new CustomException("Produto não encontrado."));
+            Product product = lookup.products().get(itemDTO.getProductId());
+            if (product == null) {
+                throw new CustomException("Produto não encontrado.");
+            }
 
-            // Busca o tamanho do produto pelo ID
-            ProductSize size = productSizeRepository.findById(itemDTO.getSizeId())
-                    .orElseThrow(() -> new CustomException("Tamanho do produto não encontrado."));
+            ProductSize size = lookup.sizes().get(itemDTO.getSizeId());
+            if (size == null) {
+                throw new CustomException("Tamanho do produto não encontrado.");
+            }
 
-            // Verifica se a quantidade disponível é suficiente
-            if (size.getQuantity() < itemDTO.getQuantity()) {
+            // Verifica se a quantidade disponível é suficiente (já descontando itens e vendas anteriores)
+            int available = availableBySize.getOrDefault(size.getId(), size.getQuantity())
+                    - consumedBySize.getOrDefault(size.getId(), 0);
+            if (available < itemDTO.getQuantity()) {
                 // Inclui o nome do produto e o tamanho na mensagem de erro
                 String errorMessage = String.format(
                         "Quantidade insuficiente para o produto: Nome = %s,\n Tamanho = %s,\n Quantidade disponível = %d,\n Quantidade solicitada = %d.",
                         product.getName(),
                         size.getSize(),
-                        size.getQuantity(),
+                        available,
                         itemDTO.getQuantity()
                 );
                 throw new CustomException(errorMessage);
@@ -117,23 +378,16 @@ public class SaleService {
             // Calcula o total do item (preço * quantidade)
             BigDecimal itemTotal = product.getPrice().multiply(BigDecimal.valueOf(itemDTO.getQuantity()));
 
-            // Cria o item da venda e ajusta as quantidades do produto e do tamanho
+            // Cria o item da venda
             SaleItem saleItem = new SaleItem();
             saleItem.setProduct(product);
             saleItem.setSize(size);
             saleItem.setQuantity(itemDTO.getQuantity());
+            saleItem.setUnitPrice(product.getPrice());
 
-            // Atualiza a quantidade do tamanho e do produto
-            size.setQuantity(size.getQuantity() - itemDTO.getQuantity());
-            productSizeRepository.save(size);
-
-            product.setQuantity(product.getQuantity() - itemDTO.getQuantity());
-            product.setQuantitySold(product.getQuantitySold() + itemDTO.getQuantity());
-            productRepository.save(product);
+            consumedBySize.merge(size.getId(), itemDTO.getQuantity(), Integer::sum);
 
-            // Adiciona o item à venda e salva no banco
-            saleItem.setSale(sale);
-            saleItemRepository.save(saleItem);
+            // Adiciona o item à venda
             sale.addSaleItem(saleItem);
 
             // Atualiza os totais da venda
@@ -151,12 +405,42 @@ public class SaleService {
         sale.setSubtotal(finalSubtotal);
         sale.setTotalAmount(totalAmount);
 
-        // Salva a venda atualizada
-        sale = saleRepository.save(sale);
+        // A venda é válida: desconta o que ela consumiu do estoque disponível
+        consumedBySize.forEach((sizeId, quantity) -> availableBySize.put(sizeId,
+                availableBySize.getOrDefault(sizeId, lookup.sizes().get(sizeId).getQuantity()) - quantity));
 
         return sale;
     }
 
+    // Baixa o estoque das vendas agrupando as quantidades por tamanho e por produto.
+    // O UPDATE só acontece se ainda houver quantidade suficiente, então duas vendas simultâneas
+    // do último par não conseguem vender a mesma unidade
+    private void decrementStock(Collection<Sale> sales, SaleLookup lookup) {
+        Map<String, Integer> quantityBySize = new HashMap<>();
+        Map<String, Integer> quantityByProduct = new HashMap<>();
+        for (Sale sale : sales) {
+            for (SaleItem saleItem : sale.getItems()) {
+                quantityBySize.merge(saleItem.getSize().getId(), saleItem.getQuantity(), Integer::sum);
+                quantityByProduct.merge(saleItem.getProduct().getId(), saleItem.getQuantity(), Integer::sum);
+            }
+        }
+
+        List<String> sizesWithoutStock = stockRepository.decrementSizes(quantityBySize);
+        if (!sizesWithoutStock.isEmpty()) {
+            ProductSize size = lookup.sizes().get(sizesWithoutStock.get(0));
+            throw new CustomException(String.format(
+                    "Quantidade insuficiente para o produto: Nome = %s,\n Tamanho = %s.\n O estoque foi alterado por outra venda, tente novamente.",
+                    size.getProduct().getName(),
+                    size.getSize()
+            ));
+        }
+        stockRepository.decrementProducts(quantityByProduct);
+    }
+
+    // Entidades referenciadas pelas vendas, carregadas em lote e indexadas pelo ID
+    private record SaleLookup(Map<String, User> users,
+                              Map<String, Product> products,
+                              Map<String, ProductSize> sizes) {}
 
     public SaleDTO convertToDTO(Sale sale) {
         SaleDTO saleDTO = new SaleDTO();
@@ -170,6 +454,7 @@ public class SaleService {
         saleDTO.setUserId(sale.getUser().getId()); // Aqui, use o campo correto que representa o UUID como String na sua entidade User
         saleDTO.setUserName(sale.getUser().getName());
         saleDTO.setIsGift(sale.getIsGift());
+        saleDTO.setIdempotencyKey(sale.getIdempotencyKey());
 
         List<SaleDTO.SaleItemDTO> itemDTOs = sale.getItems().stream()
                 .map(item -> {
@@ -191,26 +476,81 @@ public class SaleService {
         return saleDTO;
     }
 
+    // Método auxiliar para coletar os IDs distintos (não nulos) dos tamanhos vendidos
+    private Set<String> collectSizeIds(List<SaleDTO> saleDTOs) {
+        return saleDTOs.stream()
+                .filter(saleDTO -> saleDTO.getItems() != null)
+                .flatMap(saleDTO -> saleDTO.getItems().stream())
+                .map(SaleDTO.SaleItemDTO::getSizeId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    // Monta os SaleDTO a partir das linhas da projeção (uma por item) em uma única passada,
+    // mantendo a ordem retornada pela consulta
+    private List<SaleDTO> assembleSales(List<SaleRowDTO> rows) {
+        Map<String, SaleDTO> sales = new LinkedHashMap<>();
+        for (SaleRowDTO row : rows) {
+            SaleDTO saleDTO = sales.computeIfAbsent(row.saleId(), id -> row.toSaleDTO());
+            if (row.itemId() != null) {
+                saleDTO.getItems().add(row.toItemDTO());
+            }
+        }
+        return new ArrayList<>(sales.values());
+    }
+
     // Método para buscar uma venda por ID (ajustado para String)
+    @Transactional(readOnly = true)
     public SaleDTO getSaleById(String id) {
-        Optional<Sale> optionalSale = saleRepository.findById(id);
-        if (optionalSale.isEmpty()) {
+        List<SaleDTO> sales = assembleSales(saleRepository.findRowsById(id));
+        if (sales.isEmpty()) {
             throw new CustomException("Venda nao encontrada!");
         }
-        Sale sale = optionalSale.get();
-        return convertToDTO(sale);
+        return sales.get(0);
     }
 
     // Método para listar todas as vendas em ordem cronológica (do mais recente para o mais velho)
+    @Transactional(readOnly = true)
     public List<SaleDTO> listAllSales() {
-        List<Sale> sales = saleRepository.findAllByOrderBySaleDateDesc(); // Retorna em ordem decrescente
-        return sales.stream().map(this::convertToDTO).collect(Collectors.toList());
+        return assembleSales(saleRepository.findAllRows()); // Retorna em ordem decrescente
+    }
+
+    // Lista uma página de vendas (da mais recente para a mais antiga) a partir do cursor da página anterior.
+    // Busca uma venda a mais que o limite só para saber se existe próxima página
+    @Transactional(readOnly = true)
+    public CursorPageDTO<SaleDTO> listSalesPage(int limit, String cursor) {
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<String> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = saleRepository.findRecentIds(page);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            ids = saleRepository.findRecentIdsAfter(position.timestamp(), position.id(), page);
+        }
+
+        boolean hasNext = ids.size() > limit;
+        if (hasNext) {
+            ids = ids.subList(0, limit);
+        }
+        List<SaleDTO> sales = ids.isEmpty() ? new ArrayList<>() : assembleSales(saleRepository.findRowsByIdIn(ids));
+
+        String nextCursor = null;
+        if (hasNext) {
+            SaleDTO last = sales.get(sales.size() - 1);
+            nextCursor = new KeysetCursor(last.getSaleDate(), last.getId()).encode();
+        }
+        return new CursorPageDTO<>(sales, nextCursor);
     }
 
     // Método para listar as últimas 5 vendas
+    @Transactional(readOnly = true)
     public List<SaleDTO> listLastFiveSales() {
-        List<Sale> sales = saleRepository.findTop5ByOrderBySaleDateDesc();
-        return sales.stream().map(this::convertToDTO).collect(Collectors.toList());
+        // Busca primeiro os IDs (limite no banco) e depois as linhas das vendas em uma única consulta
+        List<String> ids = saleRepository.findRecentIds(PageRequest.of(0, 5));
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return assembleSales(saleRepository.findRowsByIdIn(ids));
     }
 
     @Transactional
@@ -219,66 +559,103 @@ public class SaleService {
         Sale sale = saleRepository.findById(saleId)
                 .orElseThrow(() -> new CustomException("Venda não encontrada."));
 
-        // Atualizar os itens da venda
+        // Agrupa as quantidades a devolver ao estoque por tamanho e por produto
+        Map<String, Integer> quantityBySize = new HashMap<>();
+        Map<String, Integer> quantityByProduct = new HashMap<>();
         for (SaleItem saleItem : sale.getItems()) {
-            // Atualizar a quantidade do tamanho do produto
-            ProductSize size = saleItem.getSize();
-            size.setQuantity(size.getQuantity() + saleItem.getQuantity());
-            productSizeRepository.save(size);
-
-            // Atualizar a quantidade total do produto
-            Product product = saleItem.getProduct();
-            product.setQuantity(product.getQuantity() + saleItem.getQuantity());
-
-            // Atualizar a quantidade vendida, garantindo que não fique negativa
-            int updatedQuantitySold = product.getQuantitySold() - saleItem.getQuantity();
-            if (updatedQuantitySold < 0) {
-                updatedQuantitySold = 0; // Se o valor calculado for negativo, definir como zero
-            }
-            product.setQuantitySold(updatedQuantitySold);
-            productRepository.save(product);
+            quantityBySize.merge(saleItem.getSize().getId(), saleItem.getQuantity(), Integer::sum);
+            quantityByProduct.merge(saleItem.getProduct().getId(), saleItem.getQuantity(), Integer::sum);
         }
 
-        // Remover os itens da venda
-        saleItemRepository.deleteAll(sale.getItems());
+        // Devolve as quantidades com updates atômicos (a quantidade vendida nunca fica negativa)
+        stockRepository.restoreSizes(quantityBySize);
+        stockRepository.restoreProducts(quantityByProduct);
+
+        // Retira a venda dos totais diários dos relatórios e avisa os números em memória
+        salesRollupRepository.subtract(List.of(sale));
+        eventPublisher.publishEvent(SaleChangedEvent.deleted(List.of(sale)));
 
-        // Remover a venda
+        // Remover a venda; os itens são removidos em cascata no mesmo flush
         saleRepository.delete(sale);
+
+        // Esquece a chave de idempotência depois do commit: antes disso a venda ainda existe para as outras
+        // transações, e uma repetição da requisição a colocaria de volta no cache
+        String idempotencyKey = sale.getIdempotencyKey();
+        if (idempotencyKey != null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    idempotencyCache.invalidate(idempotencyKey);
+                }
+            });
+        }
     }
 
     // Método para listar um range de vendas
+    @Transactional(readOnly = true)
     public List<SaleDTO> listSalesByDateRange(LocalDateTime start, LocalDateTime end) {
-        List<Sale> sales = saleRepository.findBySaleDateBetween(start, end);
-        return sales.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return assembleSales(saleRepository.findRowsBySaleDateBetween(start, end));
     }
 
     // Lista as vendas por intervalo de datas e status isGift.
+    @Transactional(readOnly = true)
     public List<SaleDTO> listSalesByDateRangeAndGiftStatus(LocalDateTime start, LocalDateTime end, Boolean isGift) {
-        List<Sale> sales;
+        List<SaleRowDTO> rows;
         if (isGift == null) {
             // Se isGift é null, busca todas as vendas no intervalo sem filtrar por isGift.
-            sales = saleRepository.findBySaleDateBetween(start, end);
+            rows = saleRepository.findRowsBySaleDateBetween(start, end);
         } else {
             // Busca as vendas filtradas pelo status isGift.
-            sales = saleRepository.findBySaleDateBetweenAndIsGift(start, end, isGift);
+            rows = saleRepository.findRowsBySaleDateBetweenAndIsGift(start, end, isGift);
         }
-        return sales.stream().map(this::convertToDTO).toList();
+        return assembleSales(rows);
     }
 
     // Lista todas as vendas por status isGift.
+    @Transactional(readOnly = true)
     public List<SaleDTO> listAllSalesByGiftStatus(Boolean isGift) {
-        List<Sale> sales;
+        List<SaleRowDTO> rows;
         if (isGift == null) {
             // Se isGift é null, busca todas as vendas sem filtrar por isGift.
-            sales = saleRepository.findAll();
+            rows = saleRepository.findAllRows();
         } else {
             // Busca as vendas filtradas pelo status isGift.
-            sales = saleRepository.findByIsGift(isGift);
+            rows = saleRepository.findRowsByIsGift(isGift);
         }
-        return sales.stream().map(this::convertToDTO).toList();
+        return assembleSales(rows);
     }
 
+    // Percorre as vendas do intervalo (ou todas, se start/end forem nulos) uma a uma, sem carregar a lista inteira:
+    // as linhas chegam do banco aos poucos e cada venda é entregue assim que todos os seus itens foram lidos
+    @Transactional(readOnly = true)
+    public void forEachSale(LocalDateTime start, LocalDateTime end, Boolean isGift, Consumer<SaleDTO> action) {
+        Stream<SaleRowDTO> rows;
+        if (start != null && end != null) {
+            rows = isGift == null
+                    ? saleRepository.streamRowsBySaleDateBetween(start, end)
+                    : saleRepository.streamRowsBySaleDateBetweenAndIsGift(start, end, isGift);
+        } else {
+            rows = isGift == null ? saleRepository.streamAllRows() : saleRepository.streamRowsByIsGift(isGift);
+        }
 
+        try (rows) {
+            // As linhas vêm ordenadas por (data, id), então os itens de uma venda chegam sempre juntos
+            SaleDTO current = null;
+            for (Iterator<SaleRowDTO> iterator = rows.iterator(); iterator.hasNext(); ) {
+                SaleRowDTO row = iterator.next();
+                if (current == null || !current.getId().equals(row.saleId())) {
+                    if (current != null) {
+                        action.accept(current);
+                    }
+                    current = row.toSaleDTO();
+                }
+                if (row.itemId() != null) {
+                    current.getItems().add(row.toItemDTO());
+                }
+            }
+            if (current != null) {
+                action.accept(current);
+            }
+        }
+    }
 }
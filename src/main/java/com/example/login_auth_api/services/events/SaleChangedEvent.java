@@ -0,0 +1,33 @@
+package com.example.login_auth_api.services.events;
+
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.domain.sales.Sale;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Publicado pelo SaleService quando vendas são criadas ou excluídas.
+// Leva só os dados usados pelos números dos relatórios (as entidades não saem da transação)
+public record SaleChangedEvent(List<SaleChange> changes) {
+
+    // sign = 1 para venda criada, -1 para venda excluída
+    public record SaleChange(LocalDateTime saleDate, PaymentMethod paymentMethod, boolean isGift, BigDecimal subtotal, int sign) {
+    }
+
+    public static SaleChangedEvent created(Collection<Sale> sales) {
+        return of(sales, 1);
+    }
+
+    public static SaleChangedEvent deleted(Collection<Sale> sales) {
+        return of(sales, -1);
+    }
+
+    private static SaleChangedEvent of(Collection<Sale> sales, int sign) {
+        return new SaleChangedEvent(sales.stream()
+                .map(sale -> new SaleChange(sale.getSaleDate(), sale.getPaymentMethod(), Boolean.TRUE.equals(sale.getIsGift()),
+                        sale.getSubtotal() != null ? sale.getSubtotal() : BigDecimal.ZERO, sign))
+                .toList());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.repositories.CategoryRankingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Ranking das categorias mais vendidas em um período qualquer, por linhas de item, unidades ou faturamento.
+// Períodos de dias inteiros usam os totais diários; os demais agregam os itens das vendas
+@Service
+public class CategoryRankingService {
+
+    private static final LocalTime LAST_SECOND_OF_DAY = LocalTime.of(23, 59, 59);
+
+    private final CategoryRankingRepository categoryRankingRepository;
+
+    @Autowired
+    public CategoryRankingService(CategoryRankingRepository categoryRankingRepository) {
+        this.categoryRankingRepository = categoryRankingRepository;
+    }
+
+    // Ranking entre as datas/horas informadas; limit opcional (as K primeiras categorias)
+    public Map<String, BigDecimal> rank(LocalDateTime start, LocalDateTime end, CategoryRankingRepository.Metric metric, Integer limit) {
+        validate(start, end, limit);
+
+        // Do início de um dia até o fim de outro: mesma resposta, lida dos totais diários
+        if (start.toLocalTime().equals(LocalTime.MIDNIGHT) && !end.toLocalTime().isBefore(LAST_SECOND_OF_DAY)) {
+            return toMap(categoryRankingRepository.rankFromRollup(start.toLocalDate(), end.toLocalDate(), metric, limit));
+        }
+        return toMap(categoryRankingRepository.rankFromSales(start, end, metric, limit));
+    }
+
+    // Ranking entre os dias informados (inclusive)
+    public Map<String, BigDecimal> rankDays(LocalDate from, LocalDate to, CategoryRankingRepository.Metric metric, Integer limit) {
+        return rank(from.atStartOfDay(), to.atTime(LocalTime.MAX), metric, limit);
+    }
+
+    private void validate(LocalDateTime start, LocalDateTime end, Integer limit) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Informe o início e o fim do período.");
+        }
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("O início do período deve ser anterior ao fim.");
+        }
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("O limite deve ser maior que zero.");
+        }
+    }
+
+    private Map<String, BigDecimal> toMap(List<CategoryRankingRepository.CategoryTotal> rows) {
+        Map<String, BigDecimal> ranking = new LinkedHashMap<>(); // Mantém a ordem do ranking
+        for (CategoryRankingRepository.CategoryTotal row : rows) {
+            ranking.put(row.category(), row.total());
+        }
+        return ranking;
+    }
+}
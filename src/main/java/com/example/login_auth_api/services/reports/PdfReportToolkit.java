@@ -0,0 +1,95 @@
+package com.example.login_auth_api.services.reports;
+
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.colors.Color;
+import com.itextpdf.kernel.colors.DeviceRgb;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.Style;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Fontes, estilos e fábrica de células compartilhados pelos relatórios em PDF.
+// Os programas das fontes são carregados uma vez para a aplicação; as PdfFont e os estilos pertencem a um só
+// PdfDocument, então cada relatório cria o seu toolkit e todas as células e páginas usam as mesmas instâncias
+public class PdfReportToolkit {
+
+    // Cinza do cabeçalho do relatório de vendas (mesmo valor de java.awt.Color.GRAY)
+    public static final DeviceRgb SALES_HEADER_COLOR = new DeviceRgb(128, 128, 128);
+    // Cinza claro do cabeçalho do relatório de produtos
+    public static final DeviceRgb PRODUCTS_HEADER_COLOR = new DeviceRgb(200, 200, 200);
+
+    private static final FontProgram REGULAR_FONT_PROGRAM = loadFontProgram(StandardFonts.HELVETICA);
+    private static final FontProgram BOLD_FONT_PROGRAM = loadFontProgram(StandardFonts.HELVETICA_BOLD);
+
+    private final PdfFont regularFont;
+    private final PdfFont boldFont;
+
+    private final Style titleStyle;
+    private final Style subTitleStyle;
+    private final Style headerCellStyle;
+
+    public PdfReportToolkit(Color headerColor) {
+        this.regularFont = PdfFontFactory.createFont(REGULAR_FONT_PROGRAM, PdfEncodings.WINANSI);
+        this.boldFont = PdfFontFactory.createFont(BOLD_FONT_PROGRAM, PdfEncodings.WINANSI);
+
+        this.titleStyle = new Style().setFont(boldFont).setFontSize(20);
+        this.subTitleStyle = new Style().setFont(boldFont).setFontSize(14).setMarginBottom(20);
+        this.headerCellStyle = new Style().setFont(boldFont).setPadding(2).setBackgroundColor(headerColor);
+    }
+
+    // Cria o Document do relatório já com a fonte padrão, para os elementos não resolverem uma fonte cada um
+    public Document createDocument(PdfDocument pdfDoc) {
+        Document document = new Document(pdfDoc);
+        document.setFont(regularFont);
+        return document;
+    }
+
+    public PdfFont getRegularFont() {
+        return regularFont;
+    }
+
+    public Paragraph title(String text) {
+        return new Paragraph(text).addStyle(titleStyle);
+    }
+
+    public Paragraph subTitle(String text) {
+        return new Paragraph(text).addStyle(subTitleStyle);
+    }
+
+    // Texto em negrito no tamanho informado (informações gerais no fim dos relatórios)
+    public Paragraph boldText(String text, float fontSize) {
+        return new Paragraph(text).setFont(boldFont).setFontSize(fontSize);
+    }
+
+    public Cell headerCell(String text) {
+        return new Cell().addStyle(headerCellStyle).add(new Paragraph(text));
+    }
+
+    // Células das linhas: as propriedades vão direto na célula em vez de um Style, porque o iText percorre os
+    // estilos (criando um iterador) a cada propriedade consultada no layout, o que custa mais que o padding direto
+    public Cell cell(String text) {
+        return new Cell().setPadding(2).add(new Paragraph(text));
+    }
+
+    // Célula com fonte menor, para textos longos como os IDs
+    public Cell smallCell(String text) {
+        return new Cell().setPadding(2).setFontSize(8).add(new Paragraph(text));
+    }
+
+    private static FontProgram loadFontProgram(String fontName) {
+        try {
+            return FontProgramFactory.createFont(fontName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
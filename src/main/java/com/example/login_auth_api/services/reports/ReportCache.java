@@ -0,0 +1,108 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.dto.ReportCacheStatsDTO;
+import com.example.login_auth_api.services.events.SaleChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Resultados dos relatórios guardados por (relatório, período). Uma venda criada/excluída remove só os resultados
+// cujo período contém a data da venda; o TTL limita o tempo de um resultado desatualizado por outra instância da aplicação.
+// Um cálculo que já estava em andamento quando as vendas mudaram pode ter lido os dados antigos: o resultado dele
+// é devolvido a quem pediu, mas não é guardado (a geração mudou durante o cálculo)
+@Component
+public class ReportCache {
+
+    public record Key(String report, LocalDate from, LocalDate to) {
+    }
+
+    private final Cache<Key, Object> cache;
+    private final LongAdder invalidations = new LongAdder();
+    // Incrementada a cada mudança de vendas (e limpeza total) que remove resultados
+    private final AtomicLong generation = new AtomicLong();
+
+    public ReportCache(@Value("${reports.cache.max-size:500}") long maxSize,
+                       @Value("${reports.cache.ttl-minutes:10}") long ttlMinutes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+    }
+
+    // Retorna o resultado guardado ou calcula e guarda; requisições simultâneas da mesma chave calculam uma vez só
+    @SuppressWarnings("unchecked")
+    public <T> T get(String report, LocalDate from, LocalDate to, Supplier<T> loader) {
+        Object[] loaded = new Object[1];
+        Object value = cache.get(new Key(report, from, to), key -> {
+            long startedAt = generation.get();
+            loaded[0] = loader.get();
+            if (generation.get() != startedAt) {
+                // Vendas mudaram durante o cálculo: não guarda (retornar null deixa a chave vazia)
+                invalidations.increment();
+                return null;
+            }
+            return loaded[0];
+        });
+        if (value == null) {
+            // Resultado descartado; se foi o cálculo de outra requisição que esta esperava, calcula de novo
+            value = loaded[0] != null ? loaded[0] : loader.get();
+        }
+        return (T) value;
+    }
+
+    // Roda depois dos números em memória (SalesMetricsEngine), para que um resultado recalculado já os veja atualizados
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onSaleChanged(SaleChangedEvent event) {
+        // Antes da remoção: os cálculos que ainda estão rodando (invisíveis para o removeIf) não serão guardados
+        generation.incrementAndGet();
+        Set<LocalDate> saleDays = new TreeSet<>();
+        for (SaleChangedEvent.SaleChange change : event.changes()) {
+            saleDays.add(change.saleDate().toLocalDate());
+        }
+        cache.asMap().keySet().removeIf(key -> {
+            boolean affected = saleDays.stream()
+                    .anyMatch(day -> !day.isBefore(key.from()) && !day.isAfter(key.to()));
+            if (affected) {
+                invalidations.increment();
+            }
+            return affected;
+        });
+    }
+
+    // Remove todos os resultados (ex.: depois da reconstrução dos totais diários)
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidations.add(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    public ReportCacheStatsDTO getStats() {
+        CacheStats stats = cache.stats();
+        return new ReportCacheStatsDTO(
+                cache.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.loadSuccessCount(),
+                stats.loadFailureCount(),
+                stats.averageLoadPenalty() / 1_000_000.0,
+                stats.evictionCount(),
+                invalidations.sum());
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.dto.ProductDTO;
+import com.example.login_auth_api.dto.ReportJobDTO;
+import com.example.login_auth_api.dto.ReportJobRequestDTO;
+import com.example.login_auth_api.exceptions.CustomException;
+import com.example.login_auth_api.services.ProductService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Relatórios gerados em segundo plano: o pedido volta na hora com um ID e o arquivo é gerado em disco por um
+// pool de threads limitado (fila cheia = pedido recusado). Pedidos iguais em andamento viram um só job e os
+// arquivos prontos são apagados depois de reports.jobs.ttl-minutes
+@Service
+public class ReportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJobService.class);
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    // Arquivo pronto para download
+    public record Artifact(Path path, long size, String filename, String contentType) {
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final ReportJobRequestDTO request;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        volatile Status status = Status.QUEUED;
+        volatile LocalDateTime finishedAt;
+        // Último pedido de download; o envio do arquivo (sendfile) continua depois que getArtifact retorna.
+        // lastDownloadAt e expired são lidos e alterados com o monitor do job
+        LocalDateTime lastDownloadAt;
+        boolean expired;
+        volatile Path file;
+        volatile long size;
+        volatile String error;
+
+        Job(ReportJobRequestDTO request) {
+            this.request = request;
+        }
+    }
+
+    private final ProductService productService;
+    private final ReportSalesService reportSalesService;
+    private final ReportProductsService reportProductsService;
+    private final ThreadPoolExecutor executor;
+    private final Duration ttl;
+    private final Path directory;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Jobs na fila ou gerando, pelo pedido; usado para não gerar duas vezes o mesmo relatório ao mesmo tempo
+    private final Map<ReportJobRequestDTO, Job> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReportJobService(ProductService productService,
+                            ReportSalesService reportSalesService,
+                            ReportProductsService reportProductsService,
+                            @Value("${reports.jobs.threads:2}") int threads,
+                            @Value("${reports.jobs.queue-size:20}") int queueSize,
+                            @Value("${reports.jobs.ttl-minutes:30}") long ttlMinutes) throws IOException {
+        this.productService = productService;
+        this.reportSalesService = reportSalesService;
+        this.reportProductsService = reportProductsService;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.directory = Files.createTempDirectory("report-jobs-");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Enfileira o relatório, ou devolve o job já em andamento para o mesmo pedido.
+    // Lança RejectedExecutionException se a fila estiver cheia
+    public ReportJobDTO submit(ReportJobRequestDTO request) {
+        ReportJobRequestDTO key = validate(request.normalized());
+        Job job = inFlight.compute(key, (k, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            Job created = new Job(k);
+            executor.execute(() -> run(created));
+            jobs.put(created.id, created);
+            return created;
+        });
+        return toDTO(job);
+    }
+
+    public ReportJobDTO getJob(String id) {
+        return toDTO(find(id));
+    }
+
+    // Arquivo do job, somente se já estiver pronto
+    public Artifact getArtifact(String id) {
+        Job job = find(id);
+        if (job.status != Status.DONE) {
+            throw new IllegalStateException("O relatório ainda não está pronto.");
+        }
+        synchronized (job) {
+            if (job.expired) {
+                throw new CustomException("Relatório não encontrado ou expirado.");
+            }
+            job.lastDownloadAt = LocalDateTime.now();
+        }
+        String extension = job.request.format();
+        String contentType = "pdf".equals(extension) ? "application/pdf" : "text/csv; charset=UTF-8";
+        String filename = ("sales".equals(job.request.type()) ? "relatorio_vendas." : "relatorio_produtos.") + extension;
+        return new Artifact(job.file, job.size, filename, contentType);
+    }
+
+    // Apaga os arquivos e jobs terminados há mais tempo que o TTL. Um job baixado há menos que o TTL é mantido,
+    // para não apagar o arquivo enquanto o Tomcat ainda o envia
+    @Scheduled(fixedDelayString = "${reports.jobs.cleanup-ms:60000}")
+    public void cleanupExpired() {
+        LocalDateTime limit = LocalDateTime.now().minus(ttl);
+        jobs.values().removeIf(job -> {
+            synchronized (job) {
+                job.expired = job.finishedAt != null && job.finishedAt.isBefore(limit)
+                        && (job.lastDownloadAt == null || job.lastDownloadAt.isBefore(limit));
+                if (job.expired) {
+                    deleteQuietly(job.file);
+                }
+                return job.expired;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        jobs.values().forEach(job -> deleteQuietly(job.file));
+        deleteQuietly(directory);
+    }
+
+    private void run(Job job) {
+        job.status = Status.RUNNING;
+        Path file = null;
+        try {
+            file = Files.createTempFile(directory, "report-" + job.id + "-", "." + job.request.format());
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                render(job.request, out);
+            }
+            job.size = Files.size(file);
+            job.file = file;
+            job.status = Status.DONE;
+        } catch (Exception e) {
+            log.error("Falha ao gerar o relatório do job {} ({})", job.id, job.request, e);
+            deleteQuietly(file);
+            job.error = "Erro ao gerar o relatório: " + e.getMessage();
+            job.status = Status.FAILED;
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            inFlight.remove(job.request, job);
+        }
+    }
+
+    private void render(ReportJobRequestDTO request, OutputStream out) throws IOException {
+        if ("sales".equals(request.type())) {
+            if ("csv".equals(request.format())) {
+                reportSalesService.writeSalesCsvReport(out, request.start(), request.end(), request.isGift());
+            } else {
+                reportSalesService.writeSalesPdfReport(out, request.start(), request.end(), request.isGift());
+            }
+        } else {
+            if ("csv".equals(request.format())) {
+                reportProductsService.writeProductsCsvReport(out, request.deleted(), request.profit(), request.categoryId());
+            } else {
+                List<ProductDTO> products = productService.listProductsForReport(request.deleted(), request.categoryId());
+                reportProductsService.writeProductsPdfReport(out, products, request.profit());
+            }
+        }
+    }
+
+    private ReportJobRequestDTO validate(ReportJobRequestDTO request) {
+        if (!"sales".equals(request.type()) && !"products".equals(request.type())) {
+            throw new IllegalArgumentException("Tipo de relatório inválido. Use sales ou products.");
+        }
+        if (!"pdf".equals(request.format()) && !"csv".equals(request.format())) {
+            throw new IllegalArgumentException("Formato não suportado.");
+        }
+        if (request.start() != null && request.start().isAfter(request.end())) {
+            throw new IllegalArgumentException("O início do período deve ser anterior ao fim.");
+        }
+        return request;
+    }
+
+    private Job find(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new CustomException("Relatório não encontrado ou expirado.");
+        }
+        return job;
+    }
+
+    private ReportJobDTO toDTO(Job job) {
+        boolean done = job.status == Status.DONE;
+        return new ReportJobDTO(job.id, job.status.name(), job.request.type(), job.request.format(),
+                job.createdAt, job.finishedAt, done ? job.size : null, job.error,
+                done ? "/reports/jobs/" + job.id + "/download" : null);
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Fica para a próxima limpeza do sistema operacional
+        }
+    }
+}
@@ -1,99 +1,131 @@
 package com.example.login_auth_api.services.reports;
 
 import com.example.login_auth_api.dto.ProductDTO;
+import com.example.login_auth_api.services.ProductService;
 import com.example.login_auth_api.services.PageNumberHandler;
-import com.itextpdf.kernel.colors.DeviceRgb;
 import com.itextpdf.kernel.events.PdfDocumentEvent;
 import com.itextpdf.kernel.geom.PageSize;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
-import com.itextpdf.layout.element.Cell;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.UnitValue;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class ReportProductsService {
-    //Método para gerar relatorio CSV dos produtos
-    public ByteArrayInputStream generateProductsCsvReport(List<ProductDTO> products, Boolean deleted, Boolean profit) {
-        StringBuilder csvData = new StringBuilder();
+    // Cabeçalho da tabela do PDF de produtos (a coluna de lucro é opcional)
+    private static final String[] PRODUCTS_PDF_HEADER = {"ID do Produto", "Nome do Produto", "Categoria", "Custo", "Preço",
+            "Quantidade Disponível", "Quantidade por Tamanho", "Deletado", "Quantidade vendida"};
 
-        // Cabeçalho do CSV
-        csvData.append("ID do Produto;Nome;Categoria;Custo;Preço;Quantidade disponivel;Quantidade por tamanho disponivel;Deletado;Quantidade vendida");
+    private final ProductService productService;
 
-        // Adiciona o cabeçalho de lucro se o parâmetro `profit` for verdadeiro
+    @Autowired
+    public ReportProductsService(ProductService productService) {
+        this.productService = productService;
+    }
+
+    //Método para gerar relatorio CSV dos produtos direto na saída (ex.: resposta HTTP), produto a produto,
+    //com os filtros de deletado e categoria aplicados na consulta. O layout é o de antes: sem a coluna de lucro,
+    //cada produto termina em ";" (coluna final vazia), e os campos vazios saem como "null"
+    public void writeProductsCsvReport(OutputStream out, Boolean deleted, Boolean profit, String categoryId) throws IOException {
+        // Cabeçalho do CSV, com a coluna de lucro se o parâmetro `profit` for verdadeiro
+        List<String> header = new ArrayList<>(List.of("ID do Produto", "Nome", "Categoria", "Custo", "Preço",
+                "Quantidade disponivel", "Quantidade por tamanho disponivel", "Deletado", "Quantidade vendida"));
         if (Boolean.TRUE.equals(profit)) {
-            csvData.append(";Lucro");
+            header.add("Lucro");
         }
-        csvData.append("\n");
-
-        // Adiciona os dados dos produtos
-        for (ProductDTO product : products) {
-            String tamanhosFormatados = product.getSizes().stream()
-                    .map(size -> size.getQuantity() + "(" + size.getSize() + ")")
-                    .collect(Collectors.joining(", "));
-
-            csvData.append(product.getId()).append(";");
-            csvData.append(product.getName()).append(";");
-            csvData.append(product.getCategoryName()).append(";");
-            csvData.append(product.getCost()).append(";");
-            csvData.append(product.getPrice()).append(";");
-            csvData.append(product.getQuantity()).append(";");
-            csvData.append(tamanhosFormatados).append(";");
-            csvData.append(product.isDeleted() ? "SIM" : "NÃO").append(";");
-            csvData.append(product.getQuantitySold()).append(";");
-
-            // Adiciona o lucro, se o parâmetro `profit` for verdadeiro
-            if (Boolean.TRUE.equals(profit)) {
-                BigDecimal lucro = calculateProfit(product);
-                csvData.append(lucro);
-            }
-
-            csvData.append("\n");
+        CSVFormat format = CSVFormat.DEFAULT.builder()
+                .setDelimiter(';')
+                .setRecordSeparator('\n')
+                .setNullString("null")
+                .setHeader(header.toArray(new String[0]))
+                .build();
+
+        // O printer não é fechado aqui: quem abriu a saída é quem a fecha
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CSVPrinter printer = new CSVPrinter(writer, format);
+        try {
+            productService.forEachProductForReport(deleted, categoryId, product -> {
+                String tamanhosFormatados = product.getSizes().stream()
+                        .map(size -> size.getQuantity() + "(" + size.getSize() + ")")
+                        .collect(Collectors.joining(", "));
+
+                List<Object> record = new ArrayList<>(Arrays.asList(
+                        product.getId(),
+                        product.getName(),
+                        product.getCategoryName(),
+                        product.getCost(),
+                        product.getPrice(),
+                        product.getQuantity(),
+                        tamanhosFormatados,
+                        product.isDeleted() ? "SIM" : "NÃO",
+                        product.getQuantitySold()));
+                // Adiciona o lucro, se o parâmetro `profit` for verdadeiro
+                record.add(Boolean.TRUE.equals(profit) ? calculateProfit(product) : "");
+
+                try {
+                    printer.printRecord(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
 
-        csvData.append("\n");
         // Adiciona a linha indicando o estado do filtro 'deleted'
-        csvData.append("Filtro 'Deletado' especificado: ").append(deleted != null ? (deleted ? "SIM" : "NÃO") : "Não especificado").append("\n");
-
-        return new ByteArrayInputStream(csvData.toString().getBytes(StandardCharsets.UTF_8));
+        printer.println();
+        printer.printRecord("Filtro 'Deletado' especificado: " + (deleted != null ? (deleted ? "SIM" : "NÃO") : "Não especificado"));
+        printer.flush();
     }
 
     //Método para gerar relatorio PDF dos produtos
     public ByteArrayInputStream generateProductsPdfReport(List<ProductDTO> products, Boolean profit) throws IOException {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeProductsPdfReport(out, products, profit);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
 
+    //Método para gerar relatorio PDF dos produtos na saída informada (ex.: arquivo temporário de um job)
+    public void writeProductsPdfReport(OutputStream out, List<ProductDTO> products, Boolean profit) throws IOException {
         // Configuração do PDF com orientação horizontal
         PdfWriter writer = new PdfWriter(out);
         PdfDocument pdfDoc = new PdfDocument(writer);
         pdfDoc.setDefaultPageSize(PageSize.A4.rotate()); // Configura a página A4 em orientação horizontal
 
+        // Fontes, estilos e células do relatório, compartilhados por todas as linhas e páginas
+        PdfReportToolkit toolkit = new PdfReportToolkit(PdfReportToolkit.PRODUCTS_HEADER_COLOR);
+
+        // Adicionando números de página; registrado antes do conteúdo para valer em todas as páginas
+        PageNumberHandler pageNumbers = new PageNumberHandler(toolkit.getRegularFont());
+        pdfDoc.addEventHandler(PdfDocumentEvent.END_PAGE, pageNumbers);
+
         // Cria o documento
-        Document document = new Document(pdfDoc);
-
-        // Configuração do título
-        Paragraph title = new Paragraph("LABELEJUH BAGS & SHOES")
-                .setFontSize(20)
-                .setBold();
-        // Configuração do subtítulo
-        Paragraph subTitle = new Paragraph("Relatório Detalhado de Produtos")
-                .setFontSize(14)
-                .setBold()
-                .setMarginBottom(20);
+        Document document = toolkit.createDocument(pdfDoc);
 
         // Adicionando título e subtítulo ao documento
-        document.add(title);
-        document.add(subTitle);
+        document.add(toolkit.title("LABELEJUH BAGS & SHOES"));
+        document.add(toolkit.subTitle("Relatório Detalhado de Produtos"));
 
         float[] columnWidths = profit != null && profit ? new float[]{3, 5, 2, 2, 2, 2, 5, 1, 2, 2} : new float[]{3, 5, 2, 2, 2, 2, 5, 1, 2};
 
@@ -102,18 +134,12 @@ public class ReportProductsService {
         table.setWidth(UnitValue.createPercentValue(100));
 
         // Adicionando cabeçalhos da tabela com estilo e padding
-        table.addHeaderCell(createCellWithPadding(new Paragraph("ID do Produto").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Nome do Produto").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Categoria").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Custo").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Preço").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Quantidade Disponível").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Quantidade por Tamanho").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Deletado").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Quantidade vendida").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
+        for (String header : PRODUCTS_PDF_HEADER) {
+            table.addHeaderCell(toolkit.headerCell(header));
+        }
 
         if (profit != null && profit) {
-            table.addHeaderCell(createCellWithPadding(new Paragraph("Lucro").setBold()).setBackgroundColor(new DeviceRgb(200, 200, 200)));
+            table.addHeaderCell(toolkit.headerCell("Lucro"));
         }
 
         int totalProdutos = 0;
@@ -126,18 +152,18 @@ public class ReportProductsService {
                     .map(size -> size.getQuantity() + " (" + size.getSize() + ")")
                     .collect(Collectors.joining(", "));
 
-            table.addCell(createCellWithPadding(new Paragraph(product.getId()).setFontSize(8)));
-            table.addCell(createCellWithPadding(new Paragraph(product.getName())));
-            table.addCell(createCellWithPadding(new Paragraph(product.getCategoryName())));
-            table.addCell(createCellWithPadding(new Paragraph("R$" + product.getCost().toString())));
-            table.addCell(createCellWithPadding(new Paragraph("R$" + product.getPrice().toString())));
-            table.addCell(createCellWithPadding(new Paragraph(product.getQuantity().toString())));
-            table.addCell(createCellWithPadding(new Paragraph(tamanhosFormatados)));
-            table.addCell(createCellWithPadding(new Paragraph(product.isDeleted() ? "Sim" : "Não")));
-            table.addCell(createCellWithPadding(new Paragraph(product.getQuantitySold().toString())));
+            table.addCell(toolkit.smallCell(product.getId()));
+            table.addCell(toolkit.cell(product.getName()));
+            table.addCell(toolkit.cell(product.getCategoryName()));
+            table.addCell(toolkit.cell("R$" + product.getCost().toString()));
+            table.addCell(toolkit.cell("R$" + product.getPrice().toString()));
+            table.addCell(toolkit.cell(product.getQuantity().toString()));
+            table.addCell(toolkit.cell(tamanhosFormatados));
+            table.addCell(toolkit.cell(product.isDeleted() ? "Sim" : "Não"));
+            table.addCell(toolkit.cell(product.getQuantitySold().toString()));
 
             if (profit != null && profit) {
-                table.addCell(createCellWithPadding(new Paragraph("R$" + calculateProfit(product))));
+                table.addCell(toolkit.cell("R$" + calculateProfit(product)));
             }
         }
 
@@ -145,23 +171,12 @@ public class ReportProductsService {
         document.add(table);
 
         // Adicionando informações gerais no final do documento
-        Paragraph infoVendas = new Paragraph("\nInformações Gerais:\n Total de Produtos = " + totalProdutos)
-                .setFontSize(14)
-                .setBold();
+        Paragraph infoVendas = toolkit.boldText("\nInformações Gerais:\n Total de Produtos = " + totalProdutos, 14);
         document.add(infoVendas);
 
-        // Adicionando números de página
-        pdfDoc.addEventHandler(PdfDocumentEvent.END_PAGE, new PageNumberHandler());
-
-        // Fechando o documento
+        // Preenche o total de páginas dos rodapés e fecha o documento
+        pageNumbers.writeTotal(pdfDoc);
         document.close();
-
-        return new ByteArrayInputStream(out.toByteArray());
-    }
-
-    // Método auxiliar para criar células com padding
-    private Cell createCellWithPadding(Paragraph content) {
-        return new Cell().add(content).setPadding(2);
     }
 
     //Método auxiliar para calcular o lucro do porduto
@@ -1,141 +1,337 @@
 package com.example.login_auth_api.services.reports;
 
 import com.example.login_auth_api.dto.SaleDTO;
+import com.example.login_auth_api.dto.SalesPerDayDTO;
+import com.example.login_auth_api.repositories.SaleRepository;
+import com.example.login_auth_api.services.SaleService;
 import com.example.login_auth_api.services.PageNumberHandler;
-import com.itextpdf.kernel.colors.DeviceRgb;
 import com.itextpdf.kernel.events.PdfDocumentEvent;
 import com.itextpdf.kernel.geom.PageSize;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.utils.PdfMerger;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
-import com.itextpdf.layout.element.Cell;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.awt.*;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class ReportSalesService {
 
-    // Método para gerar o relatório em CSV das vendas
-    public ByteArrayInputStream generateSalesCsvReport(List<SaleDTO> sales, LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        StringBuilder csvData = new StringBuilder();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-
-        // Cabeçalho do CSV
-        csvData.append("ID da venda;Data;Vendedor;Produtos;Quantidade de tamanhos;Valor da venda;Valor do desconto;Subtotal da venda;Metodo de pagamento;Presente;Observação\n");
-
-        // Adiciona os dados das vendas
-        for (SaleDTO sale : sales) {
-            // Formata os nomes dos produtos e quantidades com tamanhos
-            String produtos = sale.getItems().stream()
-                    .map(item -> item.getProductName() + " tam. (" + item.getSizeName() + ")")
-                    .collect(Collectors.joining(", "));
-
-            String quantidades = sale.getItems().stream()
-                    .map(item -> String.valueOf(item.getQuantity()) + " (" + item.getSizeName() + ")")
-                    .collect(Collectors.joining(", "));
+    // Cabeçalho do CSV de vendas
+    private static final String[] SALES_CSV_HEADER = {"ID da venda", "Data", "Vendedor", "Produtos", "Quantidade de tamanhos",
+            "Valor da venda", "Valor do desconto", "Subtotal da venda", "Metodo de pagamento", "Presente", "Observação"};
+
+    // Cabeçalho da tabela do PDF de vendas
+    private static final String[] SALES_PDF_HEADER = {"ID da venda", "Data", "Vendedor", "Produtos", "Quantidade de tamanhos",
+            "Valor da venda", "Valor do desconto", "Subtotal da venda", "Método de pagamento"};
+
+    private final SaleService saleService;
+    private final SaleRepository saleRepository;
+    // A cada quantas vendas as linhas já prontas da tabela do PDF são desenhadas e liberadas da memória
+    private final int pdfFlushRows;
+    // Quantidade de partes geradas ao mesmo tempo nos PDFs grandes e a partir de quantas vendas o PDF é dividido.
+    // Cada parte segura uma conexão do pool enquanto lê as suas vendas, então o paralelismo fica limitado à metade
+    // do pool do Hikari (o pool de PDFs é um só para todos os relatórios)
+    private final int pdfParallelism;
+    private final long pdfParallelMinSales;
+    private final ForkJoinPool pdfPool;
+
+    @Autowired
+    public ReportSalesService(SaleService saleService,
+                              SaleRepository saleRepository,
+                              @Value("${reports.pdf.flush-rows:25}") int pdfFlushRows,
+                              @Value("${reports.pdf.parallelism:0}") int pdfParallelism,
+                              @Value("${reports.pdf.parallel-min-sales:5000}") long pdfParallelMinSales,
+                              @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.saleService = saleService;
+        this.saleRepository = saleRepository;
+        this.pdfFlushRows = pdfFlushRows;
+        // 0 = um por processador
+        int requested = pdfParallelism > 0 ? pdfParallelism : Runtime.getRuntime().availableProcessors();
+        this.pdfParallelism = Math.max(1, Math.min(requested, connectionPoolSize / 2));
+        this.pdfParallelMinSales = pdfParallelMinSales;
+        this.pdfPool = new ForkJoinPool(this.pdfParallelism);
+    }
 
-            // Adiciona as informações da venda ao CSV
-            csvData.append(sale.getId()).append(";");
-            csvData.append(sale.getSaleDate().format(formatter)).append(";");
-            csvData.append(sale.getUserName()).append(";");
-            csvData.append(produtos).append(";");
-            csvData.append(quantidades).append(";");
-            csvData.append(sale.getTotalAmount()).append(";");
-            csvData.append(sale.getDiscount()).append(";");
-            csvData.append(sale.getSubtotal()).append(";");
-            csvData.append(sale.getPaymentMethod()).append(";");
-            csvData.append(sale.isIsGift() ? "SIM" : "NÃO").append(";");
-            csvData.append(sale.getObservation()).append(";");
-            csvData.append("\n");
+    // Método para gerar o relatório em CSV das vendas direto na saída (ex.: resposta HTTP), venda a venda:
+    // a memória usada não cresce com a quantidade de vendas. Separador ";" com aspas/escape feitos pelo commons-csv.
+    // O layout é o de antes: ";" no fim de cada venda (coluna final vazia), "null" nos campos vazios e o período
+    // no fim, também terminado em ";" e sem quebra de linha
+    public void writeSalesCsvReport(OutputStream out, LocalDateTime startDateTime, LocalDateTime endDateTime, Boolean isGift) throws IOException {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        CSVFormat format = CSVFormat.DEFAULT.builder()
+                .setDelimiter(';')
+                .setRecordSeparator('\n')
+                .setNullString("null")
+                .setHeader(SALES_CSV_HEADER)
+                .build();
+
+        // O printer não é fechado aqui: quem abriu a saída é quem a fecha
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CSVPrinter printer = new CSVPrinter(writer, format);
+        try {
+            saleService.forEachSale(startDateTime, endDateTime, isGift, sale -> {
+                // Formata os nomes dos produtos e quantidades com tamanhos
+                String produtos = sale.getItems().stream()
+                        .map(item -> item.getProductName() + " tam. (" + item.getSizeName() + ")")
+                        .collect(Collectors.joining(", "));
+
+                String quantidades = sale.getItems().stream()
+                        .map(item -> String.valueOf(item.getQuantity()) + " (" + item.getSizeName() + ")")
+                        .collect(Collectors.joining(", "));
+
+                try {
+                    printer.printRecord(
+                            sale.getId(),
+                            sale.getSaleDate().format(formatter),
+                            sale.getUserName(),
+                            produtos,
+                            quantidades,
+                            sale.getTotalAmount(),
+                            sale.getDiscount(),
+                            sale.getSubtotal(),
+                            sale.getPaymentMethod(),
+                            sale.isIsGift() ? "SIM" : "NÃO",
+                            sale.getObservation(),
+                            "");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
 
         // Adiciona as datas de pesquisa ao CSV
         DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+        printer.println();
         if (startDateTime != null && endDateTime != null) {
-            csvData.append("\nPeríodo de Pesquisa: ")
-                    .append(startDateTime.format(dateFormatter))
-                    .append(" a ")
-                    .append(endDateTime.format(dateFormatter))
-                    .append(";");
+            printer.print("Período de Pesquisa: " + startDateTime.format(dateFormatter) + " a " + endDateTime.format(dateFormatter));
+        } else {
+            printer.print("Período de Pesquisa: Não especificado todas as vendas listadas");
+        }
+        printer.print("");
+        printer.flush();
+    }
+
+    // Método para gerar o relatório em PDF das vendas direto na saída (resposta HTTP ou arquivo de um job).
+    // Relatórios pequenos são gerados de uma vez só. Os grandes (a partir de pdfParallelMinSales vendas) são
+    // divididos em partes de dias inteiros, geradas em paralelo e juntadas na ordem do relatório
+    public void writeSalesPdfReport(OutputStream out, LocalDateTime startDateTime, LocalDateTime endDateTime, Boolean isGift) throws IOException {
+        List<SalePeriod> periods = planPdfParts(startDateTime, endDateTime, isGift);
+        if (periods.size() == 1) {
+            PdfPart whole = new PdfPart(startDateTime, endDateTime, true, SalesTotals::new);
+            renderSalesPdf(out, whole, startDateTime, endDateTime, isGift, true);
         } else {
-            csvData.append("\nPeríodo de Pesquisa: Não especificado todas as vendas listadas;");
+            writeSalesPdfInParts(out, periods, startDateTime, endDateTime, isGift);
+        }
+    }
+
+    // Gera cada parte em um arquivo temporário no pool de PDFs e depois junta todas na saída
+    private void writeSalesPdfInParts(OutputStream out, List<SalePeriod> periods, LocalDateTime startDateTime,
+                                      LocalDateTime endDateTime, Boolean isGift) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try {
+            List<CompletableFuture<SalesTotals>> futures = new ArrayList<>();
+            for (int i = 0; i < periods.size(); i++) {
+                Path file = Files.createTempFile("relatorio-vendas-parte-", ".pdf");
+                files.add(file);
+
+                // A última parte leva as informações gerais: depois de desenhar as próprias linhas, espera os totais das outras
+                List<CompletableFuture<SalesTotals>> others = List.copyOf(futures);
+                boolean last = i == periods.size() - 1;
+                PdfPart part = new PdfPart(periods.get(i).from(), periods.get(i).to(), i == 0,
+                        last ? () -> sumTotals(others) : null);
+
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> renderSalesPdfPart(file, part, startDateTime, endDateTime, isGift), pdfPool));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            mergeSalesPdfParts(out, files);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
         }
+    }
 
-        return new ByteArrayInputStream(csvData.toString().getBytes());
+    private SalesTotals renderSalesPdfPart(Path file, PdfPart part, LocalDateTime startDateTime,
+                                           LocalDateTime endDateTime, Boolean isGift) {
+        try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(file))) {
+            return renderSalesPdf(fileOut, part, startDateTime, endDateTime, isGift, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    // Método para gerar o relatório em PDF das vendas
-    public ByteArrayInputStream generateSalesPdfReport(List<SaleDTO> sales, LocalDateTime startDateTime, LocalDateTime endDateTime) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // Junta as partes na ordem do relatório e numera as páginas de novo ("Page N of total"), liberando cada
+    // página assim que é copiada para não manter o relatório inteiro na memória
+    private void mergeSalesPdfParts(OutputStream out, List<Path> files) throws IOException {
+        PdfDocument merged = new PdfDocument(new PdfWriter(out));
+        PdfReportToolkit toolkit = new PdfReportToolkit(PdfReportToolkit.SALES_HEADER_COLOR);
+        PageNumberHandler pageNumbers = new PageNumberHandler(toolkit.getRegularFont());
+        PdfMerger merger = new PdfMerger(merged);
+
+        for (Path file : files) {
+            try (PdfDocument part = new PdfDocument(new PdfReader(file.toFile()))) {
+                int firstPage = merged.getNumberOfPages() + 1;
+                merger.merge(part, 1, part.getNumberOfPages());
+                for (int pageNumber = firstPage; pageNumber <= merged.getNumberOfPages(); pageNumber++) {
+                    PdfPage page = merged.getPage(pageNumber);
+                    pageNumbers.addFooter(merged, page, pageNumber);
+                    page.flush();
+                }
+            }
+        }
 
+        // Preenche o total de páginas dos rodapés e fecha o documento
+        pageNumbers.writeTotal(merged);
+        merged.close();
+    }
+
+    // Divide o relatório em partes de dias inteiros com quantidades de vendas parecidas, da mais recente para a mais
+    // antiga (a ordem do relatório). Devolve uma parte só quando o relatório é pequeno ou o paralelismo é 1
+    private List<SalePeriod> planPdfParts(LocalDateTime startDateTime, LocalDateTime endDateTime, Boolean isGift) {
+        SalePeriod whole = new SalePeriod(startDateTime, endDateTime);
+        if (pdfParallelism <= 1) {
+            return List.of(whole);
+        }
+
+        boolean hasPeriod = startDateTime != null && endDateTime != null;
+        List<SalesPerDayDTO> days = countSalesPerDay(startDateTime, endDateTime, isGift);
+        long totalSales = days.stream().mapToLong(SalesPerDayDTO::salesCount).sum();
+        if (totalSales < pdfParallelMinSales || days.size() < 2) {
+            return List.of(whole);
+        }
+
+        // Sem período, as partes vão do primeiro ao último dia com vendas
+        long salesPerPart = (totalSales + pdfParallelism - 1) / pdfParallelism;
+        LocalDateTime upper = hasPeriod ? endDateTime : days.get(0).day().plusDays(1).atStartOfDay().minusNanos(1000);
+        LocalDateTime lower = hasPeriod ? startDateTime : days.get(days.size() - 1).day().atStartOfDay();
+
+        // Cada corte é o início de um dia: a parte acima vai do corte até o limite anterior e a próxima termina
+        // 1µs antes do corte (a precisão do timestamp no banco), então as partes não se sobrepõem nem deixam buracos
+        List<SalePeriod> periods = new ArrayList<>();
+        long partSales = 0;
+        for (int i = 0; i < days.size() - 1 && periods.size() < pdfParallelism - 1; i++) {
+            partSales += days.get(i).salesCount();
+            if (partSales >= salesPerPart) {
+                LocalDateTime cut = days.get(i).day().atStartOfDay();
+                periods.add(new SalePeriod(cut, upper));
+                upper = cut.minusNanos(1000);
+                partSales = 0;
+            }
+        }
+        periods.add(new SalePeriod(lower, upper));
+        return periods;
+    }
+
+    // Vendas por dia com o período e o filtro de presente opcionais (mesmos filtros de SaleService.forEachSale)
+    private List<SalesPerDayDTO> countSalesPerDay(LocalDateTime startDateTime, LocalDateTime endDateTime, Boolean isGift) {
+        if (startDateTime != null && endDateTime != null) {
+            return isGift == null
+                    ? saleRepository.countSalesPerDayBySaleDateBetween(startDateTime, endDateTime)
+                    : saleRepository.countSalesPerDayBySaleDateBetweenAndIsGift(startDateTime, endDateTime, isGift);
+        }
+        return isGift == null ? saleRepository.countAllSalesPerDay() : saleRepository.countSalesPerDayByIsGift(isGift);
+    }
+
+    // Desenha as vendas de uma parte (ou do relatório inteiro) em um PDF. A tabela é "grande" (largeTable): a cada
+    // pdfFlushRows vendas as linhas são desenhadas e descartadas, então nem as vendas nem o layout ficam inteiros na
+    // memória. Devolve os totais das vendas desenhadas
+    private SalesTotals renderSalesPdf(OutputStream out, PdfPart part, LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                       Boolean isGift, boolean withPageNumbers) throws IOException {
         // Configuração do PDF com orientação horizontal
         PdfWriter writer = new PdfWriter(out);
         PdfDocument pdfDoc = new PdfDocument(writer);
         pdfDoc.setDefaultPageSize(PageSize.A4.rotate()); // Configura a página A4 em orientação horizontal
 
-        // Cria o documento
-        Document document = new Document(pdfDoc);
+        // Fontes, estilos e células do relatório, compartilhados por todas as linhas e páginas
+        PdfReportToolkit toolkit = new PdfReportToolkit(PdfReportToolkit.SALES_HEADER_COLOR);
 
-        // Adiciona a data do intervalo pesquisado no canto superior direito, se disponível
-        if (startDateTime != null && endDateTime != null) {
-            addDateRangeHeader(document, startDateTime, endDateTime);
+        // Adicionando números de página; registrado antes do conteúdo porque as páginas são fechadas durante a escrita.
+        // As partes de um relatório dividido são numeradas só depois de juntadas
+        PageNumberHandler pageNumbers = null;
+        if (withPageNumbers) {
+            pageNumbers = new PageNumberHandler(toolkit.getRegularFont());
+            pdfDoc.addEventHandler(PdfDocumentEvent.END_PAGE, pageNumbers);
         }
 
+        // Cria o documento
+        Document document = toolkit.createDocument(pdfDoc);
 
-        // Configuração do título
-        Paragraph title = new Paragraph("LABELEJUH " + "BAGS & SHOES")
-                .setFontSize(20)
-                .setBold();
-        // Configuração do subtítulo
-        Paragraph subTitle = new Paragraph("Relatório Detalhado de Vendas")
-                .setFontSize(14)
-                .setBold()
-                .setMarginBottom(20);
-
+        if (part.first()) {
+            // Adiciona a data do intervalo pesquisado no canto superior direito, se disponível
+            if (startDateTime != null && endDateTime != null) {
+                addDateRangeHeader(document, startDateTime, endDateTime);
+            }
 
-        // Adicionando título e subtítulo ao documento
-        document.add(title);
-        document.add(subTitle);
+            // Adicionando título e subtítulo ao documento
+            document.add(toolkit.title("LABELEJUH BAGS & SHOES"));
+            document.add(toolkit.subTitle("Relatório Detalhado de Vendas"));
+        }
 
-        // Criando uma tabela com colunas distribuídas de forma proporcional
-        Table table = new Table(new float[]{1, 2, 2, 5, 1.5f, 2, 2, 2, 1});
+        // Criando uma tabela grande com colunas distribuídas de forma proporcional
+        Table table = new Table(new float[]{1, 2, 2, 5, 1.5f, 2, 2, 2, 1}, true);
         table.setWidth(UnitValue.createPercentValue(100));
 
         // Adicionando cabeçalhos da tabela com estilo e padding
-        table.addHeaderCell(createCellWithPadding(new Paragraph("ID da venda").setBold()).setBackgroundColor(new DeviceRgb(Color.GRAY)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Data").setBold()).setBackgroundColor(new DeviceRgb(Color.GRAY)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Vendedor").setBold()).setBackgroundColor(new DeviceRgb(Color.GRAY)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Produtos").setBold()).setBackgroundColor(new DeviceRgb(Color.GRAY)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Quantidade de tamanhos").setBold()).setBackgroundColor(new DeviceRgb(Color.GRAY)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Valor da venda").setBold()).setBackgroundColor(new DeviceRgb(Color.GRAY)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Valor do desconto").setBold()).setBackgroundColor(new DeviceRgb(Color.GRAY)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Subtotal da venda").setBold()).setBackgroundColor(new DeviceRgb(Color.GRAY)));
-        table.addHeaderCell(createCellWithPadding(new Paragraph("Método de pagamento").setBold()).setBackgroundColor(new DeviceRgb(Color.GRAY)));
+        for (String header : SALES_PDF_HEADER) {
+            table.addHeaderCell(toolkit.headerCell(header));
+        }
 
         // Definindo o formato de data para o padrão brasileiro
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
-        // Variáveis para armazenar os totais
-        int totalVendas = 0;
-        int totalProdutosVendidos = 0;
-        BigDecimal valorTotalVendas = BigDecimal.ZERO;
+        // Tabela grande: entra no documento antes das linhas, que são desenhadas aos poucos
+        document.add(table);
+
+        // Totais acumulados enquanto as vendas passam
+        SalesTotals totals = new SalesTotals();
 
         // Preenchendo a tabela com os dados das vendas
-        for (SaleDTO sale : sales) {
-            totalVendas++; // Incrementa o contador de vendas
+        saleService.forEachSale(part.from(), part.to(), isGift, sale -> {
+            totals.vendas++; // Incrementa o contador de vendas
 
             // Concatenando produtos, tamanhos e quantidades
             String produtos = sale.getItems().stream()
@@ -147,56 +343,97 @@ public class ReportSalesService {
                     .collect(Collectors.joining(", "));
 
             // Calculando o total de produtos vendidos e o valor total das vendas
-            totalProdutosVendidos += sale.getItems().stream().mapToInt(SaleDTO.SaleItemDTO::getQuantity).sum();
-            valorTotalVendas = valorTotalVendas.add(sale.getTotalAmount());
+            totals.produtosVendidos += sale.getItems().stream().mapToInt(SaleDTO.SaleItemDTO::getQuantity).sum();
+            totals.valorVendas = totals.valorVendas.add(sale.getTotalAmount());
 
             // Adicionando uma única linha por venda com os produtos e quantidades concatenados
-            table.addCell(createCellWithPadding(new Paragraph(sale.getId()).setFontSize(8)));
-            table.addCell(createCellWithPadding(new Paragraph(sale.getSaleDate().toLocalDate().format(formatter))));
-            table.addCell(createCellWithPadding(new Paragraph(sale.getUserName())));
-            table.addCell(createCellWithPadding(new Paragraph(produtos)));
-            table.addCell(createCellWithPadding(new Paragraph(quantidades)));
-            table.addCell(createCellWithPadding(new Paragraph("R$" + sale.getTotalAmount().toString())));
-            table.addCell(createCellWithPadding(new Paragraph("R$" + sale.getDiscount().toString())));
-            table.addCell(createCellWithPadding(new Paragraph("R$" + sale.getSubtotal().toString())));
-            table.addCell(createCellWithPadding(new Paragraph(sale.getPaymentMethod().toString())));
-        }
-
-        // Adicionando a tabela ao documento
-        document.add(table);
-
-        // Adicionando informações gerais no final do documento
-        Paragraph totalInfo = new Paragraph("\nInformações Gerais")
-                .setFontSize(14)
-                .setBold();
-
-        Paragraph vendasInfo = new Paragraph("Total de Vendas: " + totalVendas)
-                .setFontSize(12);
-
-        Paragraph produtosInfo = new Paragraph("Quantidade de Produtos Vendidos: " + totalProdutosVendidos)
-                .setFontSize(12);
+            table.addCell(toolkit.smallCell(sale.getId()));
+            table.addCell(toolkit.cell(sale.getSaleDate().toLocalDate().format(formatter)));
+            table.addCell(toolkit.cell(sale.getUserName()));
+            table.addCell(toolkit.cell(produtos));
+            table.addCell(toolkit.cell(quantidades));
+            table.addCell(toolkit.cell("R$" + sale.getTotalAmount().toString()));
+            table.addCell(toolkit.cell("R$" + sale.getDiscount().toString()));
+            table.addCell(toolkit.cell("R$" + sale.getSubtotal().toString()));
+            table.addCell(toolkit.cell(sale.getPaymentMethod().toString()));
+
+            // Desenha as linhas acumuladas e libera a memória delas
+            if (totals.vendas % pdfFlushRows == 0) {
+                table.flush();
+            }
+        });
+
+        // Desenha as últimas linhas e fecha a tabela
+        table.complete();
+
+        if (part.last()) {
+            // Totais do relatório inteiro: os desta parte mais os das outras
+            SalesTotals reportTotals = part.otherTotals().get();
+            reportTotals.add(totals);
+
+            // Adicionando informações gerais no final do documento
+            Paragraph totalInfo = toolkit.boldText("\nInformações Gerais", 14);
+
+            Paragraph vendasInfo = new Paragraph("Total de Vendas: " + reportTotals.vendas)
+                    .setFontSize(12);
+
+            Paragraph produtosInfo = new Paragraph("Quantidade de Produtos Vendidos: " + reportTotals.produtosVendidos)
+                    .setFontSize(12);
+
+            Paragraph valorInfo = new Paragraph("Valor Total de Vendas: R$" + reportTotals.valorVendas.toString())
+                    .setFontSize(12);
+
+            // Adicionando os parágrafos ao documento
+            document.add(totalInfo);
+            document.add(vendasInfo);
+            document.add(produtosInfo);
+            document.add(valorInfo);
+        }
 
-        Paragraph valorInfo = new Paragraph("Valor Total de Vendas: R$" + valorTotalVendas.toString())
-                .setFontSize(12);
+        // Preenche o total de páginas dos rodapés e fecha o documento
+        if (pageNumbers != null) {
+            pageNumbers.writeTotal(pdfDoc);
+        }
+        document.close();
+        return totals;
+    }
 
-        // Adicionando os parágrafos ao documento
-        document.add(totalInfo);
-        document.add(vendasInfo);
-        document.add(produtosInfo);
-        document.add(valorInfo);
+    private SalesTotals sumTotals(List<CompletableFuture<SalesTotals>> parts) {
+        SalesTotals sum = new SalesTotals();
+        for (CompletableFuture<SalesTotals> part : parts) {
+            sum.add(part.join());
+        }
+        return sum;
+    }
 
-        // Adicionando números de página
-        pdfDoc.addEventHandler(PdfDocumentEvent.END_PAGE, new PageNumberHandler());
+    @PreDestroy
+    public void shutdown() {
+        pdfPool.shutdownNow();
+    }
 
-        // Fechando o documento
-        document.close();
+    // Período de vendas (inclusive nas duas pontas); nulo nas duas pontas = todas as vendas
+    private record SalePeriod(LocalDateTime from, LocalDateTime to) {
+    }
 
-        return new ByteArrayInputStream(out.toByteArray());
+    // Parte de um PDF de vendas. Só a primeira leva título e período; só a última (otherTotals não nulo) leva as
+    // informações gerais, somando os totais das outras partes
+    private record PdfPart(LocalDateTime from, LocalDateTime to, boolean first, Supplier<SalesTotals> otherTotals) {
+        boolean last() {
+            return otherTotals != null;
+        }
     }
 
-    // Método auxiliar para criar células com padding
-    private Cell createCellWithPadding(Paragraph content) {
-        return new Cell().add(content).setPadding(2);
+    // Totais do rodapé do PDF, somados dentro do callback de forEachSale
+    private static final class SalesTotals {
+        int vendas;
+        int produtosVendidos;
+        BigDecimal valorVendas = BigDecimal.ZERO;
+
+        void add(SalesTotals other) {
+            vendas += other.vendas;
+            produtosVendidos += other.produtosVendidos;
+            valorVendas = valorVendas.add(other.valorVendas);
+        }
     }
 
     //Método auxiliar para colocar a data de pesquisa no pdf
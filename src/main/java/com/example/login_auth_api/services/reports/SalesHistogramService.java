@@ -0,0 +1,98 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.dto.SalesHistogramDTO;
+import com.example.login_auth_api.repositories.SalesHistogramRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Histograma de vendas por hora, dia, semana (segunda a domingo) ou mês em um período qualquer.
+// Períodos de dias inteiros agrupados por dia/semana/mês usam os totais diários; os demais agrupam as vendas
+@Service
+public class SalesHistogramService {
+
+    private static final LocalTime LAST_SECOND_OF_DAY = LocalTime.of(23, 59, 59);
+
+    // Limite de intervalos por resposta (ex.: pouco mais de 6 meses por hora)
+    private static final int MAX_BUCKETS = 5000;
+
+    private final SalesHistogramRepository salesHistogramRepository;
+
+    @Autowired
+    public SalesHistogramService(SalesHistogramRepository salesHistogramRepository) {
+        this.salesHistogramRepository = salesHistogramRepository;
+    }
+
+    public SalesHistogramDTO histogram(LocalDateTime start, LocalDateTime end, SalesHistogramRepository.Bucket bucket) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Informe o início e o fim do período.");
+        }
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("O início do período deve ser anterior ao fim.");
+        }
+
+        // Intervalos do período, do mais antigo para o mais recente
+        LocalDateTime first = truncate(start, bucket);
+        int size = (int) Math.min(step(bucket).between(first, end) + 1, MAX_BUCKETS + 1L);
+        if (size > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Período grande demais para o intervalo escolhido (máximo de " + MAX_BUCKETS + " intervalos).");
+        }
+
+        List<SalesHistogramRepository.BucketTotals> rows;
+        if (bucket != SalesHistogramRepository.Bucket.HOUR
+                && start.toLocalTime().equals(LocalTime.MIDNIGHT) && !end.toLocalTime().isBefore(LAST_SECOND_OF_DAY)) {
+            rows = salesHistogramRepository.fromRollup(start.toLocalDate(), end.toLocalDate(), bucket);
+        } else {
+            rows = salesHistogramRepository.fromSales(start, end, bucket);
+        }
+
+        // Uma passada pelas linhas, posicionando cada uma pelo índice do seu intervalo
+        long[] counts = new long[size];
+        BigDecimal[] subtotals = new BigDecimal[size];
+        Arrays.fill(subtotals, BigDecimal.ZERO);
+        for (SalesHistogramRepository.BucketTotals row : rows) {
+            int index = (int) step(bucket).between(first, row.bucketStart());
+            if (index >= 0 && index < size) {
+                counts[index] = row.salesCount();
+                subtotals[index] = row.subtotal();
+            }
+        }
+
+        List<LocalDateTime> bucketStarts = new ArrayList<>(size);
+        List<Long> countSeries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bucketStarts.add(first.plus(i, step(bucket)));
+            countSeries.add(counts[i]);
+        }
+
+        return new SalesHistogramDTO(bucket.name().toLowerCase(), bucketStarts, countSeries, Arrays.asList(subtotals));
+    }
+
+    // Início do intervalo que contém a data, igual ao date_trunc do banco
+    private LocalDateTime truncate(LocalDateTime dateTime, SalesHistogramRepository.Bucket bucket) {
+        return switch (bucket) {
+            case HOUR -> dateTime.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> dateTime.truncatedTo(ChronoUnit.DAYS);
+            case WEEK -> dateTime.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> dateTime.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        };
+    }
+
+    private ChronoUnit step(SalesHistogramRepository.Bucket bucket) {
+        return switch (bucket) {
+            case HOUR -> ChronoUnit.HOURS;
+            case DAY -> ChronoUnit.DAYS;
+            case WEEK -> ChronoUnit.WEEKS;
+            case MONTH -> ChronoUnit.MONTHS;
+        };
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.repositories.SalesRollupRepository;
+import com.example.login_auth_api.services.events.SaleChangedEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Números de vendas do dia, do mês e do ano mantidos em memória para as telas que consultam a cada poucos segundos.
+// Carregados dos totais diários ao iniciar e atualizados depois do commit de cada venda criada/excluída;
+// os períodos viram automaticamente à meia-noite. Uma recarga periódica corrige diferenças
+// (ex.: vendas gravadas por outra instância da aplicação)
+@Component
+public class SalesMetricsEngine {
+
+    public enum Period { DAY, MONTH, YEAR }
+
+    private static final PaymentMethod[] PAYMENT_METHODS = PaymentMethod.values();
+
+    private final SalesRollupRepository salesRollupRepository;
+
+    // Períodos atuais; trocados por inteiro na virada do dia e na recarga (leitura sem trava)
+    private volatile Periods periods;
+    // Vendas aplicadas enquanto uma recarga lê o banco; reaplicadas nos números recarregados, porque as que foram
+    // gravadas depois das consultas não estão neles. Null fora de uma recarga. Uma venda gravada antes das consultas
+    // mas aplicada só depois de a fila abrir conta duas vezes até a recarga seguinte (intervalo de microssegundos
+    // entre o commit e o listener)
+    private volatile Queue<SaleChangedEvent> changesDuringResync;
+    // As vendas aplicam os números com a trava de leitura (entre si continuam simultâneas); a troca pelos números
+    // recarregados usa a de escrita, assim nenhuma venda cai nos números antigos depois da troca sem ser reaplicada
+    private final ReadWriteLock resyncLock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public SalesMetricsEngine(SalesRollupRepository salesRollupRepository) {
+        this.salesRollupRepository = salesRollupRepository;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        periods = load(LocalDate.now());
+    }
+
+    // Recarrega os números do banco (configurável em sales.metrics.resync-ms)
+    @Scheduled(fixedDelayString = "${sales.metrics.resync-ms:300000}", initialDelayString = "${sales.metrics.resync-ms:300000}")
+    public void resync() {
+        resyncLock.writeLock().lock();
+        try {
+            changesDuringResync = new ConcurrentLinkedQueue<>();
+        } finally {
+            resyncLock.writeLock().unlock();
+        }
+
+        Periods loaded = null;
+        try {
+            loaded = load(LocalDate.now());
+        } finally {
+            resyncLock.writeLock().lock();
+            try {
+                if (loaded != null) {
+                    periods = loaded;
+                    for (SaleChangedEvent event : changesDuringResync) {
+                        apply(loaded, event);
+                    }
+                }
+                changesDuringResync = null;
+            } finally {
+                resyncLock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Vira os períodos logo à meia-noite (as leituras também viram, caso o agendamento atrase)
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rollover() {
+        current();
+    }
+
+    // Aplica as vendas criadas/excluídas somente depois do commit (transação desfeita não altera os números)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onSaleChanged(SaleChangedEvent event) {
+        resyncLock.readLock().lock();
+        try {
+            apply(current(), event);
+            Queue<SaleChangedEvent> pending = changesDuringResync;
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            resyncLock.readLock().unlock();
+        }
+    }
+
+    private void apply(Periods current, SaleChangedEvent event) {
+        for (SaleChangedEvent.SaleChange change : event.changes()) {
+            LocalDate saleDay = change.saleDate().toLocalDate();
+            if (saleDay.equals(current.day())) {
+                current.today().add(change);
+            }
+            if (YearMonth.from(saleDay).equals(current.month())) {
+                current.thisMonth().add(change);
+            }
+            if (saleDay.getYear() == current.month().getYear()) {
+                current.thisYear().add(change);
+            }
+        }
+    }
+
+    public long salesCount(Period period) {
+        return bucket(period).count.sum();
+    }
+
+    public BigDecimal subtotal(Period period) {
+        return bucket(period).subtotal.sum();
+    }
+
+    public long giftCount(Period period, boolean isGift) {
+        Bucket bucket = bucket(period);
+        return isGift ? bucket.giftCount.sum() : bucket.nonGiftCount.sum();
+    }
+
+    public Map<PaymentMethod, Long> salesByPaymentMethod(Period period) {
+        Bucket bucket = bucket(period);
+        Map<PaymentMethod, Long> counts = new EnumMap<>(PaymentMethod.class);
+        for (PaymentMethod method : PAYMENT_METHODS) {
+            counts.put(method, bucket.countByPaymentMethod[method.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    private Bucket bucket(Period period) {
+        Periods current = current();
+        return switch (period) {
+            case DAY -> current.today();
+            case MONTH -> current.thisMonth();
+            case YEAR -> current.thisYear();
+        };
+    }
+
+    private Periods current() {
+        Periods current = periods;
+        LocalDate today = LocalDate.now();
+        return current.day().equals(today) ? current : rollover(today);
+    }
+
+    // Novo dia: zera o dia e, se mudou, o mês e o ano; os demais continuam acumulando
+    private synchronized Periods rollover(LocalDate today) {
+        Periods current = periods;
+        if (current.day().equals(today)) {
+            return current;
+        }
+        YearMonth month = YearMonth.from(today);
+        Bucket thisMonth = month.equals(current.month()) ? current.thisMonth() : new Bucket();
+        Bucket thisYear = today.getYear() == current.month().getYear() ? current.thisYear() : new Bucket();
+        periods = new Periods(today, month, new Bucket(), thisMonth, thisYear);
+        return periods;
+    }
+
+    private Periods load(LocalDate today) {
+        YearMonth month = YearMonth.from(today);
+        return new Periods(today, month,
+                loadBucket(today, today),
+                loadBucket(month.atDay(1), month.atEndOfMonth()),
+                loadBucket(today.withDayOfYear(1), today.withDayOfYear(today.lengthOfYear())));
+    }
+
+    private Bucket loadBucket(LocalDate from, LocalDate to) {
+        Bucket bucket = new Bucket();
+        SalesRollupRepository.Totals totals = salesRollupRepository.totals(from, to);
+        bucket.count.add(totals.salesCount());
+        bucket.subtotal.add(totals.subtotal());
+        bucket.giftCount.add(salesRollupRepository.countByGift(from, to, true));
+        bucket.nonGiftCount.add(salesRollupRepository.countByGift(from, to, false));
+        salesRollupRepository.countByPaymentMethod(from, to)
+                .forEach((method, count) -> bucket.countByPaymentMethod[method.ordinal()].add(count));
+        return bucket;
+    }
+
+    private record Periods(LocalDate day, YearMonth month, Bucket today, Bucket thisMonth, Bucket thisYear) {
+    }
+
+    // Contadores de um período; atualizados sem trava por várias threads ao mesmo tempo
+    private static final class Bucket {
+        final LongAdder count = new LongAdder();
+        final LongAdder giftCount = new LongAdder();
+        final LongAdder nonGiftCount = new LongAdder();
+        final LongAdder[] countByPaymentMethod = new LongAdder[PAYMENT_METHODS.length];
+        final BigDecimalAdder subtotal = new BigDecimalAdder();
+
+        Bucket() {
+            for (int i = 0; i < countByPaymentMethod.length; i++) {
+                countByPaymentMethod[i] = new LongAdder();
+            }
+        }
+
+        void add(SaleChangedEvent.SaleChange change) {
+            count.add(change.sign());
+            (change.isGift() ? giftCount : nonGiftCount).add(change.sign());
+            countByPaymentMethod[change.paymentMethod().ordinal()].add(change.sign());
+            subtotal.add(change.sign() > 0 ? change.subtotal() : change.subtotal().negate());
+        }
+    }
+
+    // Soma de BigDecimal dividida em faixas, cada uma com a sua trava, para que threads diferentes não disputem a mesma
+    private static final class BigDecimalAdder {
+        private static final int STRIPES = 16;
+
+        private final Object[] locks = new Object[STRIPES];
+        private final BigDecimal[] values = new BigDecimal[STRIPES];
+
+        BigDecimalAdder() {
+            for (int i = 0; i < STRIPES; i++) {
+                locks[i] = new Object();
+                values[i] = BigDecimal.ZERO;
+            }
+        }
+
+        void add(BigDecimal value) {
+            int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+            synchronized (locks[stripe]) {
+                values[stripe] = values[stripe].add(value);
+            }
+        }
+
+        BigDecimal sum() {
+            BigDecimal sum = BigDecimal.ZERO;
+            for (int i = 0; i < STRIPES; i++) {
+                synchronized (locks[i]) {
+                    sum = sum.add(values[i]);
+                }
+            }
+            return sum;
+        }
+    }
+}
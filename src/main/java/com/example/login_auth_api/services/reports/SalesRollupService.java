@@ -0,0 +1,40 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.repositories.SalesRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Reconstrução dos totais diários (daily_sales_rollup) a partir das vendas.
+// A tabela é mantida de forma incremental pela criação/exclusão de vendas; a reconstrução corrige qualquer
+// diferença (ex.: alteração manual no banco ou preço de produto alterado depois da venda)
+@Service
+public class SalesRollupService {
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final ReportCache reportCache;
+
+    @Autowired
+    public SalesRollupService(SalesRollupRepository salesRollupRepository, ReportCache reportCache) {
+        this.salesRollupRepository = salesRollupRepository;
+        this.reportCache = reportCache;
+    }
+
+    // Roda todo dia de madrugada (configurável em sales.rollup.rebuild-cron)
+    @Scheduled(cron = "${sales.rollup.rebuild-cron:0 30 3 * * *}")
+    @Transactional
+    public void rebuild() {
+        salesRollupRepository.rebuild();
+
+        // Os resultados guardados podem ter sido calculados com os totais antigos; descarta depois do commit
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reportCache.invalidateAll();
+            }
+        });
+    }
+}
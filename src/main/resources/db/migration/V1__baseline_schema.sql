@@ -0,0 +1,62 @@
+-- Esquema inicial, equivalente ao que o Hibernate gerava com ddl-auto=update.
+-- Bancos ja existentes sao marcados nesta versao (baseline-on-migrate) e nao executam este script.
+
+CREATE TABLE IF NOT EXISTS users (
+    id          varchar(255) NOT NULL PRIMARY KEY,
+    name        varchar(255),
+    email       varchar(255),
+    password    varchar(255),
+    role        varchar(255),
+    created_at  timestamp(6),
+    updated_at  timestamp(6),
+    authorized  boolean
+);
+
+CREATE TABLE IF NOT EXISTS categories (
+    id          varchar(255) NOT NULL PRIMARY KEY,
+    nome        varchar(255) NOT NULL UNIQUE,
+    deleted     boolean      NOT NULL,
+    created_at  timestamp(6),
+    updated_at  timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS products (
+    id             varchar(255)  NOT NULL PRIMARY KEY,
+    name           varchar(255)  NOT NULL UNIQUE,
+    category_id    varchar(255)  NOT NULL REFERENCES categories (id),
+    deleted        boolean       NOT NULL,
+    quantity       integer       NOT NULL,
+    created_at     timestamp(6),
+    updated_at     timestamp(6),
+    cost           numeric(38, 2),
+    price          numeric(38, 2),
+    quantity_sold  integer       NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS product_sizes (
+    id          varchar(255) NOT NULL PRIMARY KEY,
+    product_id  varchar(255) NOT NULL REFERENCES products (id),
+    size        varchar(255) NOT NULL,
+    quantity    integer      NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS sales (
+    id               varchar(255)   NOT NULL PRIMARY KEY,
+    sale_date        timestamp(6)   NOT NULL,
+    total_amount     numeric(38, 2) NOT NULL,
+    observation      varchar(255),
+    payment_method   varchar(255)   NOT NULL,
+    discount         numeric(38, 2),
+    subtotal         numeric(38, 2),
+    is_gift          boolean,
+    idempotency_key  varchar(255),
+    user_id          varchar(255)   NOT NULL REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS sale_items (
+    id          varchar(255) NOT NULL PRIMARY KEY,
+    sale_id     varchar(255) NOT NULL REFERENCES sales (id),
+    product_id  varchar(255) NOT NULL REFERENCES products (id),
+    size_id     varchar(255) NOT NULL REFERENCES product_sizes (id),
+    quantity    integer      NOT NULL
+);
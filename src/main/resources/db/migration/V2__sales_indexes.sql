@@ -0,0 +1,42 @@
+-- Indices das colunas usadas nos filtros de vendas, relatorios e paginacao.
+-- IF NOT EXISTS porque bancos criados pelo Hibernate podem ja ter parte deles.
+
+-- Chave de idempotencia das vendas (coluna adicionada depois do esquema inicial)
+ALTER TABLE sales ADD COLUMN IF NOT EXISTS idempotency_key varchar(255);
+
+DO $$
+BEGIN
+    -- O Hibernate pode ter criado a restricao unica com nome gerado; so cria se ainda nao houver nenhuma
+    IF NOT EXISTS (
+        SELECT 1
+        FROM pg_index i
+        JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey)
+        WHERE i.indrelid = 'sales'::regclass
+          AND i.indisunique
+          AND i.indnkeyatts = 1
+          AND a.attname = 'idempotency_key'
+    ) THEN
+        CREATE UNIQUE INDEX ux_sales_idempotency_key ON sales (idempotency_key);
+    END IF;
+END
+$$;
+
+-- Filtros por periodo (relatorios) e listagem/paginacao por (sale_date, id)
+CREATE INDEX IF NOT EXISTS idx_sales_sale_date_id ON sales (sale_date, id);
+
+-- Contagens e listagens de vendas para presente no periodo
+CREATE INDEX IF NOT EXISTS idx_sales_gift_sale_date ON sales (sale_date) WHERE is_gift;
+
+-- Itens por venda (listagens, exclusao) e por produto (rankings por categoria)
+CREATE INDEX IF NOT EXISTS idx_sale_items_sale_id ON sale_items (sale_id);
+CREATE INDEX IF NOT EXISTS idx_sale_items_product_id ON sale_items (product_id);
+
+-- Tamanhos carregados por produto
+CREATE INDEX IF NOT EXISTS idx_product_sizes_product_id ON product_sizes (product_id);
+
+-- Listagem/paginacao dos produtos ativos por (created_at, id); substitui o indice completo criado pelo Hibernate
+DROP INDEX IF EXISTS idx_products_created_at_id;
+CREATE INDEX IF NOT EXISTS idx_products_active_created_at_id ON products (created_at, id) WHERE NOT deleted;
+
+-- Contagem e listagem por situacao (ativos/deletados)
+CREATE INDEX IF NOT EXISTS idx_products_deleted ON products (deleted);
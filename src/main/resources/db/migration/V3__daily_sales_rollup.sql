@@ -0,0 +1,31 @@
+-- Totais diarios pre-agregados das vendas, usados pelos relatorios de mes, ano e ultimos meses.
+-- Mantido de forma incremental na mesma transacao que cria/exclui a venda; pode ser reconstruido a partir das vendas.
+-- category_id = '*' guarda os totais da venda (sem separar por categoria); as demais linhas sao por categoria.
+CREATE TABLE IF NOT EXISTS daily_sales_rollup (
+    sale_day        date           NOT NULL,
+    payment_method  varchar(255)   NOT NULL,
+    is_gift         boolean        NOT NULL,
+    category_id     varchar(255)   NOT NULL,
+    sale_count      bigint         NOT NULL DEFAULT 0,
+    line_count      bigint         NOT NULL DEFAULT 0,
+    item_quantity   bigint         NOT NULL DEFAULT 0,
+    subtotal        numeric(38, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sale_day, payment_method, is_gift, category_id)
+);
+
+-- Carga inicial a partir das vendas existentes
+INSERT INTO daily_sales_rollup (sale_day, payment_method, is_gift, category_id, sale_count, line_count, item_quantity, subtotal)
+SELECT CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false), '*',
+       COUNT(*), COALESCE(SUM(i.line_count), 0), COALESCE(SUM(i.item_quantity), 0), COALESCE(SUM(s.subtotal), 0)
+FROM sales s
+LEFT JOIN (SELECT sale_id, COUNT(*) AS line_count, SUM(quantity) AS item_quantity
+           FROM sale_items GROUP BY sale_id) i ON i.sale_id = s.id
+GROUP BY CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false);
+
+INSERT INTO daily_sales_rollup (sale_day, payment_method, is_gift, category_id, sale_count, line_count, item_quantity, subtotal)
+SELECT CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false), p.category_id,
+       COUNT(DISTINCT s.id), COUNT(*), SUM(i.quantity), COALESCE(SUM(i.quantity * p.price), 0)
+FROM sale_items i
+JOIN sales s ON s.id = i.sale_id
+JOIN products p ON p.id = i.product_id
+GROUP BY CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false), p.category_id;
@@ -0,0 +1,18 @@
+-- Preco unitario do produto no momento da venda, usado no faturamento por categoria (ranking e totais diarios).
+-- Os itens ja gravados recebem o preco atual do produto, o unico disponivel.
+ALTER TABLE sale_items ADD COLUMN IF NOT EXISTS unit_price numeric(38, 2);
+
+UPDATE sale_items i SET unit_price = p.price
+FROM products p
+WHERE p.id = i.product_id AND i.unit_price IS NULL;
+
+-- Refaz as linhas por categoria dos totais diarios a partir do preco gravado no item
+DELETE FROM daily_sales_rollup WHERE category_id <> '*';
+
+INSERT INTO daily_sales_rollup (sale_day, payment_method, is_gift, category_id, sale_count, line_count, item_quantity, subtotal)
+SELECT CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false), p.category_id,
+       COUNT(DISTINCT s.id), COUNT(*), SUM(i.quantity), COALESCE(SUM(i.quantity * i.unit_price), 0)
+FROM sale_items i
+JOIN sales s ON s.id = i.sale_id
+JOIN products p ON p.id = i.product_id
+GROUP BY CAST(s.sale_date AS date), s.payment_method, COALESCE(s.is_gift, false), p.category_id;
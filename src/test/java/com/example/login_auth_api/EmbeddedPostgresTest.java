@@ -0,0 +1,63 @@
+package com.example.login_auth_api;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+
+// Base dos testes que sobem a aplicação contra um PostgreSQL embarcado (um só por execução), com o esquema
+// criado pelas migrações do Flyway. As tabelas são esvaziadas antes de cada teste
+@SpringBootTest
+public abstract class EmbeddedPostgresTest {
+
+	private static final EmbeddedPostgres POSTGRES = start();
+
+	@Autowired
+	protected JdbcTemplate jdbcTemplate;
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+		registry.add("spring.datasource.username", () -> "postgres");
+		registry.add("spring.datasource.password", () -> "postgres");
+		registry.add("api.security.token.secret", () -> "test-secret");
+	}
+
+	@BeforeEach
+	void cleanDatabase() {
+		jdbcTemplate.execute("TRUNCATE sale_items, sales, product_sizes, products, categories, users, daily_sales_rollup CASCADE");
+	}
+
+	protected void insertUser(String id, String role) {
+		jdbcTemplate.update("INSERT INTO users (id, name, email, password, role, authorized) VALUES (?, ?, ?, 'x', ?, true)",
+				id, "Usuário " + id, id + "@teste.com", role);
+	}
+
+	// Cria a categoria (se ainda não existir), o produto e um tamanho com a quantidade informada
+	protected void insertProductWithSize(String productId, String sizeId, int quantity, BigDecimal price) {
+		jdbcTemplate.update("INSERT INTO categories (id, nome, deleted) VALUES ('cat', 'Categoria', false) ON CONFLICT DO NOTHING");
+		jdbcTemplate.update("INSERT INTO products (id, name, category_id, deleted, quantity, quantity_sold, price, cost) "
+				+ "VALUES (?, ?, 'cat', false, ?, 0, ?, 1)", productId, "Produto " + productId, quantity, price);
+		jdbcTemplate.update("INSERT INTO product_sizes (id, product_id, size, quantity) VALUES (?, ?, '40', ?)",
+				sizeId, productId, quantity);
+	}
+
+	protected int sizeQuantity(String sizeId) {
+		return jdbcTemplate.queryForObject("SELECT quantity FROM product_sizes WHERE id = ?", Integer.class, sizeId);
+	}
+
+	private static EmbeddedPostgres start() {
+		try {
+			return EmbeddedPostgres.start();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.example.login_auth_api.benchmarks;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.dto.SaleDTO;
+import com.example.login_auth_api.infra.locks.StripedLockService;
+import com.example.login_auth_api.services.SaleService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Carga de checkout com SKUs concentrados (promoção relâmpago): a maior parte das vendas disputa os mesmos dois
+// tamanhos. Compara as travas em memória com o caminho sem elas, em que as vendas esperam nas linhas travadas do
+// banco segurando conexão e transação. Mede vendas por segundo e p50/p99 das vendas dos tamanhos concorridos e dos
+// demais. Não roda no mvn test (o nome não termina em Test); rodar com: mvn test -Dtest=SaleCheckoutLoadBenchmark
+@TestPropertySource(properties = "sales.locks.timeout-ms=60000")
+class SaleCheckoutLoadBenchmark extends EmbeddedPostgresTest {
+
+	private static final int THREADS = 40;
+	private static final int REQUESTS = 2000;
+	private static final int HOT_SIZES = 2;
+	private static final int COLD_SIZES = 20;
+	// Percentual das vendas que vão para os tamanhos concorridos
+	private static final int HOT_PERCENT = 80;
+
+	@Autowired
+	private SaleService saleService;
+
+	@Autowired
+	private StripedLockService stripedLockService;
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "USER");
+		for (int i = 0; i < HOT_SIZES; i++) {
+			insertProductWithSize("quente-" + i, "tamanho-quente-" + i, 1_000_000, new BigDecimal("10.00"));
+		}
+		for (int i = 0; i < COLD_SIZES; i++) {
+			insertProductWithSize("frio-" + i, "tamanho-frio-" + i, 1_000_000, new BigDecimal("10.00"));
+		}
+	}
+
+	@AfterEach
+	void restoreLocks() {
+		ReflectionTestUtils.setField(saleService, "stripedLockService", stripedLockService);
+	}
+
+	// Mesmo contrato das travas, mas sem travar nada: as vendas concorrentes só se encontram no banco
+	private static class NoLockService extends StripedLockService {
+		NoLockService() {
+			super(1, 0);
+		}
+
+		@Override
+		public Lease acquire(Collection<String> keys) {
+			return super.acquire(List.of());
+		}
+	}
+
+	private static SaleDTO sale(String productId) {
+		SaleDTO saleDTO = new SaleDTO();
+		saleDTO.setUserId("vendedor");
+		saleDTO.setPaymentMethod(PaymentMethod.PIX);
+		saleDTO.setItems(List.of(new SaleDTO.SaleItemDTO(null, productId, null, null, "tamanho-" + productId, null, 1)));
+		return saleDTO;
+	}
+
+	private record Result(double salesPerSecond, double hotP50, double hotP99, double coldP50, double coldP99) {
+	}
+
+	private Result run(String label) throws Exception {
+		Random random = new Random(42);
+		List<String> sizes = new ArrayList<>();
+		for (int i = 0; i < REQUESTS; i++) {
+			sizes.add(random.nextInt(100) < HOT_PERCENT
+					? "quente-" + random.nextInt(HOT_SIZES)
+					: "frio-" + random.nextInt(COLD_SIZES));
+		}
+
+		List<Long> hot = Collections.synchronizedList(new ArrayList<>());
+		List<Long> cold = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger next = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		long begin;
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = next.getAndIncrement(); i < REQUESTS; i = next.getAndIncrement()) {
+						String productId = sizes.get(i);
+						long requestStart = System.nanoTime();
+						saleService.createSale(sale(productId));
+						long elapsed = System.nanoTime() - requestStart;
+						(productId.startsWith("quente") ? hot : cold).add(elapsed);
+					}
+					return null;
+				}));
+			}
+			begin = System.nanoTime();
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		double seconds = (System.nanoTime() - begin) / 1e9;
+
+		Result result = new Result(REQUESTS / seconds, percentile(hot, 50), percentile(hot, 99),
+				percentile(cold, 50), percentile(cold, 99));
+		System.out.printf("BENCHMARK checkout %s: %.0f vendas/s | concorridos p50 %.1f ms p99 %.1f ms | demais p50 %.1f ms p99 %.1f ms%n",
+				label, result.salesPerSecond(), result.hotP50(), result.hotP99(), result.coldP50(), result.coldP99());
+		return result;
+	}
+
+	private static double percentile(List<Long> nanos, int percentile) {
+		List<Long> sorted = new ArrayList<>(nanos);
+		Collections.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+		return sorted.get(Math.max(index, 0)) / 1e6;
+	}
+
+	@Test
+	void hotSkuCheckoutWithAndWithoutStripedLocks() throws Exception {
+		// Aquecimento (JIT, pool de conexões, planos das consultas)
+		run("aquecimento");
+
+		ReflectionTestUtils.setField(saleService, "stripedLockService", new NoLockService());
+		Result withoutLocks = run("sem travas");
+		ReflectionTestUtils.setField(saleService, "stripedLockService", stripedLockService);
+		Result withLocks = run("com travas");
+
+		// Nenhuma venda perdida ou vendida duas vezes em nenhum dos modos
+		int sold = jdbcTemplate.queryForObject("SELECT coalesce(sum(quantity), 0) FROM sale_items", Integer.class);
+		int taken = jdbcTemplate.queryForObject("SELECT sum(1000000 - quantity) FROM product_sizes", Integer.class);
+		assertEquals(3 * REQUESTS, sold);
+		assertEquals(sold, taken);
+
+		// Sem as travas, as vendas dos tamanhos concorridos ocupam as conexões do pool esperando as linhas travadas, e
+		// as vendas dos demais tamanhos esperam por conexão. Com as travas elas não ficam atrás da fila
+		assertTrue(withLocks.coldP99() < withoutLocks.coldP99());
+	}
+}
@@ -0,0 +1,159 @@
+package com.example.login_auth_api.benchmarks;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.domain.products.Product;
+import com.example.login_auth_api.domain.products.ProductSize;
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.domain.sales.Sale;
+import com.example.login_auth_api.domain.sales.SaleItem;
+import com.example.login_auth_api.dto.SaleDTO;
+import com.example.login_auth_api.repositories.ProductRepository;
+import com.example.login_auth_api.repositories.ProductSizeRepository;
+import com.example.login_auth_api.repositories.SaleItemRepository;
+import com.example.login_auth_api.repositories.SaleRepository;
+import com.example.login_auth_api.repositories.UserRepository;
+import com.example.login_auth_api.services.SaleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Comandos SQL e tempo por venda na criação de vendas: o fluxo atual (consultas em lote, baixa de estoque atômica
+// e a venda gravada com os itens em um único flush) contra o fluxo original, reproduzido em legacyCreateSale.
+// Não roda no mvn test (o nome não termina em Test); rodar com: mvn test -Dtest=SaleCreationBenchmark
+@Import(StatementCounter.class)
+class SaleCreationBenchmark extends EmbeddedPostgresTest {
+
+	private static final int PRODUCTS = 6;
+	private static final int WARMUP = 50;
+	private static final int SALES = 300;
+
+	@Autowired
+	private SaleService saleService;
+
+	@Autowired
+	private StatementCounter statementCounter;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private SaleRepository saleRepository;
+
+	@Autowired
+	private SaleItemRepository saleItemRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ProductSizeRepository productSizeRepository;
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "USER");
+		for (int i = 0; i < PRODUCTS; i++) {
+			insertProductWithSize("produto-" + i, "tamanho-" + i, 1_000_000, new BigDecimal("10.00"));
+		}
+	}
+
+	private static SaleDTO saleWithItems(int items) {
+		SaleDTO saleDTO = new SaleDTO();
+		saleDTO.setUserId("vendedor");
+		saleDTO.setPaymentMethod(PaymentMethod.PIX);
+		List<SaleDTO.SaleItemDTO> itemDTOs = new ArrayList<>();
+		for (int i = 0; i < items; i++) {
+			itemDTOs.add(new SaleDTO.SaleItemDTO(null, "produto-" + i, null, null, "tamanho-" + i, null, 1));
+		}
+		saleDTO.setItems(itemDTOs);
+		return saleDTO;
+	}
+
+	// Comandos por venda e microssegundos por venda
+	private record Measure(double statementsPerSale, double microsPerSale) {
+	}
+
+	private Measure measure(int items, Consumer<SaleDTO> createSale) {
+		for (int i = 0; i < WARMUP; i++) {
+			createSale.accept(saleWithItems(items));
+		}
+		statementCounter.reset();
+		long start = System.nanoTime();
+		for (int i = 0; i < SALES; i++) {
+			createSale.accept(saleWithItems(items));
+		}
+		long elapsed = System.nanoTime() - start;
+		return new Measure(statementCounter.get() / (double) SALES, elapsed / 1000.0 / SALES);
+	}
+
+	// Com um item os dois fluxos enviam a mesma quantidade de comandos (o atual troca o segundo save da venda pela
+	// atualização do resumo diário); a partir de dois itens o original cresce com os itens e o atual não
+	@Test
+	void statementsAndLatencyPerSale() {
+		for (int items : new int[]{1, 3, PRODUCTS}) {
+			Measure legacy = measure(items, saleDTO -> transactionTemplate.execute(status -> legacyCreateSale(saleDTO)));
+			Measure current = measure(items, saleService::createSale);
+			System.out.printf("BENCHMARK criação de venda, %d itens: original %.1f comandos %.0f us/venda | atual %.1f comandos %.0f us/venda%n",
+					items, legacy.statementsPerSale(), legacy.microsPerSale(), current.statementsPerSale(), current.microsPerSale());
+
+			assertTrue(current.statementsPerSale() <= legacy.statementsPerSale());
+			if (items > 1) {
+				assertTrue(current.statementsPerSale() < legacy.statementsPerSale());
+			}
+		}
+		// A quantidade de comandos do fluxo atual não depende da quantidade de itens
+		assertEquals(measure(1, saleService::createSale).statementsPerSale(),
+				measure(PRODUCTS, saleService::createSale).statementsPerSale());
+	}
+
+	// Fluxo original de SaleService.createSale (sem as validações): grava a venda antes dos itens, busca e grava
+	// produto e tamanho item a item, grava cada item e grava a venda de novo no fim
+	private Sale legacyCreateSale(SaleDTO saleDTO) {
+		Sale sale = new Sale();
+		sale.setSaleDate(LocalDateTime.now());
+		sale.setTotalAmount(BigDecimal.ZERO);
+		sale.setPaymentMethod(saleDTO.getPaymentMethod());
+		sale.setIsGift(false);
+		sale.setDiscount(BigDecimal.ZERO);
+		sale.setUser(userRepository.findById(saleDTO.getUserId()).orElseThrow());
+		sale = saleRepository.save(sale);
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (SaleDTO.SaleItemDTO itemDTO : saleDTO.getItems()) {
+			Product product = productRepository.findById(itemDTO.getProductId()).orElseThrow();
+			ProductSize size = productSizeRepository.findById(itemDTO.getSizeId()).orElseThrow();
+
+			SaleItem saleItem = new SaleItem();
+			saleItem.setProduct(product);
+			saleItem.setSize(size);
+			saleItem.setQuantity(itemDTO.getQuantity());
+
+			size.setQuantity(size.getQuantity() - itemDTO.getQuantity());
+			productSizeRepository.save(size);
+			product.setQuantity(product.getQuantity() - itemDTO.getQuantity());
+			product.setQuantitySold(product.getQuantitySold() + itemDTO.getQuantity());
+			productRepository.save(product);
+
+			saleItem.setSale(sale);
+			saleItemRepository.save(saleItem);
+			sale.addSaleItem(saleItem);
+			total = total.add(product.getPrice().multiply(BigDecimal.valueOf(itemDTO.getQuantity())));
+		}
+		sale.setSubtotal(total);
+		sale.setTotalAmount(total);
+		return saleRepository.save(sale);
+	}
+}
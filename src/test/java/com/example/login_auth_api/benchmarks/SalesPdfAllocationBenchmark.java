@@ -0,0 +1,80 @@
+package com.example.login_auth_api.benchmarks;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.services.reports.ReportSalesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Bytes alocados por linha ao gerar o PDF de vendas com 50 mil vendas (fontes, estilos e células do
+// PdfReportToolkit), medidos na thread que gera o PDF. Compara também o intervalo de flush da tabela padrão (25)
+// com o anterior (100). O PDF é gerado em uma parte só, na thread do teste.
+// Não roda no mvn test (o nome não termina em Test); rodar com: mvn test -Dtest=SalesPdfAllocationBenchmark
+@TestPropertySource(properties = "reports.pdf.parallel-min-sales=1000000000")
+class SalesPdfAllocationBenchmark extends EmbeddedPostgresTest {
+
+	private static final int SALES = 50_000;
+	private static final int ROUNDS = 3;
+
+	@Autowired
+	private ReportSalesService reportSalesService;
+
+	private final com.sun.management.ThreadMXBean threadMXBean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "ADMIN");
+		insertProductWithSize("produto-a", "tamanho-a", 1_000_000, new BigDecimal("10.00"));
+		insertProductWithSize("produto-b", "tamanho-b", 1_000_000, new BigDecimal("10.00"));
+		SalesPdfMemoryBenchmark.insertSales(jdbcTemplate, SALES);
+	}
+
+	@AfterEach
+	void restoreFlushRows() {
+		ReflectionTestUtils.setField(reportSalesService, "pdfFlushRows", 25);
+	}
+
+	private record Measure(long bytesPerRow, long millis) {
+	}
+
+	// Menor alocação e menor tempo entre as rodadas
+	private Measure measure(int flushRows) throws Exception {
+		ReflectionTestUtils.setField(reportSalesService, "pdfFlushRows", flushRows);
+		long bytes = Long.MAX_VALUE;
+		long millis = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+			long start = System.nanoTime();
+			reportSalesService.writeSalesPdfReport(OutputStream.nullOutputStream(), null, null, null);
+			millis = Math.min(millis, (System.nanoTime() - start) / 1_000_000);
+			bytes = Math.min(bytes, threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore);
+		}
+		return new Measure(bytes / SALES, millis);
+	}
+
+	@Test
+	void allocationPerRowOnFiftyThousandSales() throws Exception {
+		// Aquecimento (classes do iText, JIT)
+		reportSalesService.writeSalesPdfReport(OutputStream.nullOutputStream(), null, null, null);
+
+		Measure flush25 = measure(25);
+		Measure flush100 = measure(100);
+		System.out.printf("BENCHMARK PDF de vendas, %d vendas: flush 25 = %d KB/linha em %d ms | flush 100 = %d KB/linha em %d ms%n",
+				SALES, flush25.bytesPerRow() / 1024, flush25.millis(), flush100.bytesPerRow() / 1024, flush100.millis());
+
+		// Medido em cerca de 146 KB por linha (vendas de dois itens) com flush a cada 25 vendas e 165 KB a cada 100.
+		// O limite deixa folga para o ruído, mas pega regressões como a de estilos em cada célula (+65% por linha)
+		assertTrue(flush25.bytesPerRow() < 180 * 1024, "alocação por linha: " + flush25.bytesPerRow() + " bytes");
+		assertTrue(flush25.bytesPerRow() < flush100.bytesPerRow());
+	}
+}
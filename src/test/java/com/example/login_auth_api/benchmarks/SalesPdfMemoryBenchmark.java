@@ -0,0 +1,97 @@
+package com.example.login_auth_api.benchmarks;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.services.reports.ReportSalesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Memória retida durante a geração do PDF de vendas com 10 mil e 40 mil vendas: com a tabela desenhada e liberada
+// a cada reports.pdf.flush-rows vendas, o heap não cresce com a quantidade de vendas. O PDF é gerado em uma parte só
+// (sem a divisão em partes paralelas) para medir a tabela em si.
+// Não roda no mvn test (o nome não termina em Test); rodar com: mvn test -Dtest=SalesPdfMemoryBenchmark
+@TestPropertySource(properties = "reports.pdf.parallel-min-sales=1000000000")
+class SalesPdfMemoryBenchmark extends EmbeddedPostgresTest {
+
+	private static final long MB = 1024 * 1024;
+
+	@Autowired
+	private ReportSalesService reportSalesService;
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "ADMIN");
+		insertProductWithSize("produto-a", "tamanho-a", 1_000_000, new BigDecimal("10.00"));
+		insertProductWithSize("produto-b", "tamanho-b", 1_000_000, new BigDecimal("10.00"));
+	}
+
+	// Vendas de um minuto em um minuto a partir de 01/01/2024, cada uma com dois itens
+	static void insertSales(JdbcTemplate jdbcTemplate, int count) {
+		jdbcTemplate.update("INSERT INTO sales (id, sale_date, total_amount, payment_method, user_id, is_gift, subtotal, discount) "
+				+ "SELECT 'venda-' || g, timestamp '2024-01-01' + g * interval '1 minute', 30, 'PIX', 'vendedor', false, 30, 0 "
+				+ "FROM generate_series(1, ?) g", count);
+		jdbcTemplate.update("INSERT INTO sale_items (id, sale_id, product_id, size_id, quantity) "
+				+ "SELECT 'item-a-' || g, 'venda-' || g, 'produto-a', 'tamanho-a', 1 FROM generate_series(1, ?) g", count);
+		jdbcTemplate.update("INSERT INTO sale_items (id, sale_id, product_id, size_id, quantity) "
+				+ "SELECT 'item-b-' || g, 'venda-' || g, 'produto-b', 'tamanho-b', 2 FROM generate_series(1, ?) g", count);
+	}
+
+	// Maior heap usado depois de um GC, amostrado durante a geração, menos o heap usado antes dela
+	private long retainedDuringRender() throws Exception {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long before = runtime.totalMemory() - runtime.freeMemory();
+
+		AtomicLong peak = new AtomicLong(before);
+		AtomicBoolean done = new AtomicBoolean();
+		Thread sampler = new Thread(() -> {
+			while (!done.get()) {
+				System.gc();
+				peak.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+		sampler.start();
+		try {
+			reportSalesService.writeSalesPdfReport(OutputStream.nullOutputStream(), null, null, null);
+		} finally {
+			done.set(true);
+			sampler.join();
+		}
+		return peak.get() - before;
+	}
+
+	@Test
+	void retainedHeapIsFlatInSaleCount() throws Exception {
+		// Aquecimento (classes do iText, JIT)
+		insertSales(jdbcTemplate, 2_000);
+		reportSalesService.writeSalesPdfReport(OutputStream.nullOutputStream(), null, null, null);
+
+		jdbcTemplate.execute("TRUNCATE sale_items, sales CASCADE");
+		insertSales(jdbcTemplate, 10_000);
+		long small = retainedDuringRender();
+
+		jdbcTemplate.execute("TRUNCATE sale_items, sales CASCADE");
+		insertSales(jdbcTemplate, 40_000);
+		long large = retainedDuringRender();
+
+		System.out.printf("BENCHMARK PDF de vendas: heap retido %d MB com 10 mil vendas | %d MB com 40 mil vendas%n",
+				small / MB, large / MB);
+
+		// Quatro vezes mais vendas sem crescer mais que uma folga fixa (ruído das amostras e do GC)
+		assertTrue(large < small + 16 * MB, "heap retido cresceu com as vendas: " + small / MB + " MB -> " + large / MB + " MB");
+	}
+}
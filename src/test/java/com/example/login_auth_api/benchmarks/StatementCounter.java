@@ -0,0 +1,73 @@
+package com.example.login_auth_api.benchmarks;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Conta os comandos enviados ao banco por todas as conexões do DataSource (Hibernate e JdbcTemplate).
+// Cada chamada execute* conta uma vez; um executeBatch conta como um único envio
+public class StatementCounter implements BeanPostProcessor {
+
+	private final AtomicLong executions = new AtomicLong();
+
+	public long get() {
+		return executions.get();
+	}
+
+	public void reset() {
+		executions.set(0);
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+			return new DelegatingDataSource(dataSource) {
+				@Override
+				public Connection getConnection() throws SQLException {
+					return wrap(Connection.class, super.getConnection());
+				}
+
+				@Override
+				public Connection getConnection(String username, String password) throws SQLException {
+					return wrap(Connection.class, super.getConnection(username, password));
+				}
+			};
+		}
+		return bean;
+	}
+
+	// Conexões devolvem comandos também contados; nos comandos, conta as chamadas execute*
+	private <T> T wrap(Class<T> type, T target) {
+		Object proxy = Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+			if (method.getName().startsWith("execute")) {
+				executions.incrementAndGet();
+			}
+			Object result = invoke(method, target, args);
+			if (type == Connection.class && result != null && method.getName().matches("prepareStatement|prepareCall|createStatement")) {
+				return wrapStatement(method, result);
+			}
+			return result;
+		});
+		return type.cast(proxy);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Object wrapStatement(Method method, Object statement) {
+		return wrap((Class<T>) method.getReturnType(), (T) statement);
+	}
+
+	private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
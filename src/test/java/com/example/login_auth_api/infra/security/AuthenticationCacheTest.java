@@ -0,0 +1,140 @@
+package com.example.login_auth_api.infra.security;
+
+import com.example.login_auth_api.domain.user.Role;
+import com.example.login_auth_api.domain.user.User;
+import com.example.login_auth_api.infra.security.AuthenticationCache.CachedPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthenticationCacheTest {
+
+	private final AuthenticationCache authenticationCache = new AuthenticationCache(100, 5);
+	private final TokenService tokenService = new TokenService("segredo-de-teste");
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private static User user(Role role) {
+		User user = new User();
+		user.setId("usuario");
+		user.setEmail("usuario@teste.com");
+		user.setRole(role);
+		return user;
+	}
+
+	private static CachedPrincipal principal(Role role, Instant expiresAt) {
+		return new CachedPrincipal(user(role), List.of(new SimpleGrantedAuthority("ROLE_" + role.name())), expiresAt);
+	}
+
+	// Mesmo papel do SecurityFilter.loadPrincipal: verifica o token e "busca" o usuário com a função atual
+	private Function<String, CachedPrincipal> loader(AtomicReference<Role> currentRole) {
+		return token -> {
+			loads.incrementAndGet();
+			if (tokenService.verify(token) == null) {
+				return null;
+			}
+			return principal(currentRole.get(), Instant.now().plusSeconds(3600));
+		};
+	}
+
+	@Test
+	void validTokenIsLoadedOnce() {
+		String token = tokenService.generateToken(user(Role.USER));
+		AtomicReference<Role> role = new AtomicReference<>(Role.USER);
+
+		CachedPrincipal first = authenticationCache.get(token, loader(role));
+		CachedPrincipal second = authenticationCache.get(token, loader(role));
+
+		assertSame(first, second);
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void invalidTokenIsNotCached() {
+		String token = tokenService.generateToken(user(Role.USER)) + "x";
+		AtomicReference<Role> role = new AtomicReference<>(Role.USER);
+
+		assertNull(authenticationCache.get(token, loader(role)));
+		assertNull(authenticationCache.get(token, loader(role)));
+		assertNull(authenticationCache.get("lixo", loader(role)));
+
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	void entryExpiresAtTokenExpiration() throws Exception {
+		Function<String, CachedPrincipal> loader = token -> {
+			loads.incrementAndGet();
+			return principal(Role.USER, Instant.now().plusMillis(300));
+		};
+
+		authenticationCache.get("token", loader);
+		authenticationCache.get("token", loader);
+		assertEquals(1, loads.get());
+
+		Thread.sleep(400);
+		authenticationCache.get("token", loader);
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void roleChangeEvictsUserTokens() {
+		String token = tokenService.generateToken(user(Role.USER));
+		AtomicReference<Role> role = new AtomicReference<>(Role.USER);
+		assertEquals(Role.USER, authenticationCache.get(token, loader(role)).user().getRole());
+
+		role.set(Role.ADMIN);
+		authenticationCache.invalidateUser("usuario");
+
+		CachedPrincipal reloaded = authenticationCache.get(token, loader(role));
+		assertEquals(Role.ADMIN, reloaded.user().getRole());
+		assertEquals("ROLE_ADMIN", reloaded.authorities().get(0).getAuthority());
+		assertEquals(2, loads.get());
+	}
+
+	// Busca do usuário em andamento quando a função muda: a função antiga não pode ficar no cache
+	@Test
+	void loadRunningDuringRoleChangeIsReloaded() throws Exception {
+		String token = tokenService.generateToken(user(Role.USER));
+		AtomicReference<Role> role = new AtomicReference<>(Role.USER);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch finish = new CountDownLatch(1);
+		// A primeira busca lê a função e demora para terminar; as seguintes leem a função atual
+		Function<String, CachedPrincipal> slowLoader = t -> {
+			CachedPrincipal read = principal(role.get(), Instant.now().plusSeconds(3600));
+			loads.incrementAndGet();
+			if (loading.getCount() > 0) {
+				loading.countDown();
+				try {
+					finish.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return read;
+		};
+		CompletableFuture<CachedPrincipal> slowLoad = CompletableFuture.supplyAsync(() ->
+				authenticationCache.get(token, slowLoader));
+
+		assertTrue(loading.await(10, TimeUnit.SECONDS));
+		role.set(Role.ADMIN);
+		authenticationCache.invalidateUser("usuario");
+		finish.countDown();
+
+		assertEquals(Role.ADMIN, slowLoad.get(10, TimeUnit.SECONDS).user().getRole());
+		assertEquals(Role.ADMIN, authenticationCache.get(token, loader(role)).user().getRole());
+		assertEquals(2, loads.get());
+	}
+}
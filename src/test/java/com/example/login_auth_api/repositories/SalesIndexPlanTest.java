@@ -0,0 +1,82 @@
+package com.example.login_auth_api.repositories;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Aplica as migrações em um PostgreSQL embarcado e confere que as consultas quentes usam os índices
+class SalesIndexPlanTest {
+
+	private static EmbeddedPostgres postgres;
+	private static JdbcTemplate jdbcTemplate;
+
+	@BeforeAll
+	static void migrate() throws Exception {
+		postgres = EmbeddedPostgres.start();
+		Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+		jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+	}
+
+	@AfterAll
+	static void stop() throws Exception {
+		postgres.close();
+	}
+
+	// Tabelas de teste são pequenas; sem seq scan o planejador mostra qual índice usaria
+	private String plan(String sql) {
+		return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("SET enable_seqscan = off");
+				StringBuilder plan = new StringBuilder();
+				try (ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+					while (rs.next()) {
+						plan.append(rs.getString(1)).append('\n');
+					}
+				}
+				return plan.toString();
+			}
+		});
+	}
+
+	@Test
+	void salesByDateRangeUseSaleDateIndex() {
+		String plan = plan("SELECT * FROM sales WHERE sale_date BETWEEN now() - interval '1 month' AND now()");
+		assertTrue(plan.contains("idx_sales_sale_date_id"), plan);
+	}
+
+	@Test
+	void salesPageSeeksOnSaleDateAndId() {
+		String plan = plan("SELECT id FROM sales WHERE sale_date <= now() AND (sale_date < now() OR id < 'x') "
+				+ "ORDER BY sale_date DESC, id DESC LIMIT 51");
+		assertTrue(plan.contains("idx_sales_sale_date_id"), plan);
+	}
+
+	@Test
+	void giftSalesUsePartialIndex() {
+		String plan = plan("SELECT count(*) FROM sales WHERE is_gift AND sale_date BETWEEN now() - interval '1 month' AND now()");
+		assertTrue(plan.contains("idx_sales_gift_sale_date"), plan);
+	}
+
+	@Test
+	void saleItemsUseForeignKeyIndexes() {
+		assertTrue(plan("SELECT * FROM sale_items WHERE sale_id = 'a'").contains("idx_sale_items_sale_id"));
+		assertTrue(plan("SELECT * FROM sale_items WHERE product_id = 'a'").contains("idx_sale_items_product_id"));
+		assertTrue(plan("SELECT * FROM product_sizes WHERE product_id = 'a'").contains("idx_product_sizes_product_id"));
+	}
+
+	@Test
+	void activeProductsPageUsesPartialIndex() {
+		String plan = plan("SELECT id FROM products WHERE NOT deleted AND created_at <= now() "
+				+ "AND (created_at < now() OR id < 'x') ORDER BY created_at DESC, id DESC LIMIT 51");
+		assertTrue(plan.contains("idx_products_active_created_at_id"), plan);
+	}
+}
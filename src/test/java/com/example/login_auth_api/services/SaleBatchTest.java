@@ -0,0 +1,131 @@
+package com.example.login_auth_api.services;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.dto.SaleBatchResultDTO;
+import com.example.login_auth_api.dto.SaleDTO;
+import com.example.login_auth_api.infra.locks.StripedLockService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Criação de vendas em lote: blocos de 2 vendas e espera curta pelas travas
+@TestPropertySource(properties = {"sales.batch.chunk-size=2", "sales.locks.timeout-ms=200"})
+@AutoConfigureMockMvc
+class SaleBatchTest extends EmbeddedPostgresTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private SaleService saleService;
+
+	@Autowired
+	private StripedLockService stripedLockService;
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "USER");
+		insertProductWithSize("produto-a", "tamanho-a", 10, new BigDecimal("100.00"));
+		insertProductWithSize("produto-b", "tamanho-b", 10, new BigDecimal("50.00"));
+	}
+
+	static SaleDTO sale(String productId, String sizeId, int quantity) {
+		SaleDTO saleDTO = new SaleDTO();
+		saleDTO.setUserId("vendedor");
+		saleDTO.setPaymentMethod(PaymentMethod.PIX);
+		saleDTO.setItems(List.of(new SaleDTO.SaleItemDTO(null, productId, null, null, sizeId, null, quantity)));
+		return saleDTO;
+	}
+
+	@Test
+	void lockTimeoutFailsOnlyItsChunk() throws Exception {
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		// Outra "venda" segura a trava do tamanho B enquanto o lote roda
+		Thread holder = new Thread(() -> {
+			try (StripedLockService.Lease ignored = stripedLockService.acquire(Set.of("tamanho-b"))) {
+				locked.countDown();
+				release.await(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		holder.start();
+		assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+		List<SaleBatchResultDTO> results;
+		try {
+			results = saleService.createSalesBatch(List.of(
+					sale("produto-a", "tamanho-a", 1), sale("produto-a", "tamanho-a", 1),
+					sale("produto-b", "tamanho-b", 1), sale("produto-b", "tamanho-b", 1),
+					sale("produto-a", "tamanho-a", 1), sale("produto-a", "tamanho-a", 1)));
+		} finally {
+			release.countDown();
+			holder.join();
+		}
+
+		assertEquals(6, results.size());
+		for (int i = 0; i < results.size(); i++) {
+			SaleBatchResultDTO result = results.get(i);
+			assertEquals(i, result.index());
+			if (i == 2 || i == 3) {
+				assertFalse(result.success());
+				assertTrue(result.error().startsWith("Muitas vendas simultâneas"), result.error());
+			} else {
+				assertTrue(result.success(), result.error());
+			}
+		}
+		assertEquals(6, sizeQuantity("tamanho-a"));
+		assertEquals(10, sizeQuantity("tamanho-b"));
+		assertEquals(4, jdbcTemplate.queryForObject("SELECT count(*) FROM sales", Integer.class));
+	}
+
+	// Pela requisição HTTP o EntityManager (open-in-view) é o mesmo em todos os blocos: o bloco 2 precisa ver o
+	// estoque já baixado pelo bloco 1 e recusar a venda na validação, sem desfazer o bloco inteiro
+	@Test
+	void laterChunkSeesStockTakenByEarlierChunk() throws Exception {
+		insertProductWithSize("produto-c", "tamanho-c", 3, new BigDecimal("10.00"));
+		List<SaleDTO> sales = List.of(
+				sale("produto-c", "tamanho-c", 1), sale("produto-c", "tamanho-c", 1),
+				sale("produto-c", "tamanho-c", 1), sale("produto-c", "tamanho-c", 1));
+
+		String response = mockMvc.perform(post("/sales/batch")
+						.with(user("admin").roles("ADMIN"))
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(objectMapper.writeValueAsString(sales)))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		List<SaleBatchResultDTO> results = objectMapper.readValue(response, new TypeReference<>() {
+		});
+
+		assertTrue(results.get(0).success() && results.get(1).success() && results.get(2).success(), response);
+		assertFalse(results.get(3).success());
+		assertTrue(results.get(3).error().contains("Quantidade disponível = 0"), results.get(3).error());
+		assertEquals(0, sizeQuantity("tamanho-c"));
+		assertEquals(3, jdbcTemplate.queryForObject("SELECT count(*) FROM sales", Integer.class));
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.login_auth_api.services;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.dto.SaleDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SaleIdempotencyTest extends EmbeddedPostgresTest {
+
+	@Autowired
+	private SaleService saleService;
+
+	// O cache de idempotência sobrevive à limpeza das tabelas entre os testes: cada teste usa a sua chave
+	private final String key = UUID.randomUUID().toString();
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "USER");
+		insertProductWithSize("produto", "tamanho", 10, new BigDecimal("100.00"));
+	}
+
+	private static SaleDTO saleWithKey(String key) {
+		SaleDTO saleDTO = SaleBatchTest.sale("produto", "tamanho", 1);
+		saleDTO.setIdempotencyKey(key);
+		return saleDTO;
+	}
+
+	@Test
+	void retryReturnsOriginalSale() {
+		SaleDTO first = saleService.createSaleIdempotent(saleWithKey(key));
+		SaleDTO retry = saleService.createSaleIdempotent(saleWithKey(key));
+
+		assertEquals(first.getId(), retry.getId());
+		assertEquals(9, sizeQuantity("tamanho"));
+	}
+
+	// Venda excluída: a mesma chave não pode devolver do cache uma venda que não existe mais
+	@Test
+	void deletedSaleIsNotReturnedFromCache() {
+		SaleDTO first = saleService.createSaleIdempotent(saleWithKey(key));
+		saleService.deleteSaleById(first.getId());
+		assertEquals(10, sizeQuantity("tamanho"));
+
+		SaleDTO again = saleService.createSaleIdempotent(saleWithKey(key));
+
+		assertNotEquals(first.getId(), again.getId());
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM sales WHERE id = ?", Integer.class, again.getId()));
+		assertEquals(9, sizeQuantity("tamanho"));
+	}
+}
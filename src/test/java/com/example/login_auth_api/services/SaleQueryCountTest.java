@@ -0,0 +1,93 @@
+package com.example.login_auth_api.services;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.dto.SaleDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Quantidade de comandos SQL emitidos pelo Hibernate na listagem e na criação de vendas: não pode crescer com o
+// número de vendas nem de itens (as baixas de estoque e os totais diários vão por JDBC e não entram na contagem)
+@TestPropertySource(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+class SaleQueryCountTest extends EmbeddedPostgresTest {
+
+	private static final int PRODUCTS = 6;
+
+	@Autowired
+	private SaleService saleService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "USER");
+		for (int i = 0; i < PRODUCTS; i++) {
+			insertProductWithSize("produto-" + i, "tamanho-" + i, 1000, new BigDecimal("10.00"));
+		}
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	private SaleDTO saleWithItems(int items) {
+		SaleDTO saleDTO = new SaleDTO();
+		saleDTO.setUserId("vendedor");
+		saleDTO.setPaymentMethod(PaymentMethod.PIX);
+		List<SaleDTO.SaleItemDTO> itemDTOs = new ArrayList<>();
+		for (int i = 0; i < items; i++) {
+			itemDTOs.add(new SaleDTO.SaleItemDTO(null, "produto-" + i, null, null, "tamanho-" + i, null, 1));
+		}
+		saleDTO.setItems(itemDTOs);
+		return saleDTO;
+	}
+
+	// Consultas em lote de usuário, produtos e tamanhos + insert da venda + insert em lote dos itens
+	@Test
+	void saleCreationStatementsDoNotDependOnItemCount() {
+		for (int items : new int[]{1, 3, PRODUCTS}) {
+			statistics.clear();
+			saleService.createSale(saleWithItems(items));
+			assertEquals(5, statistics.getPrepareStatementCount(), items + " itens");
+		}
+	}
+
+	@Test
+	void listAllSalesIsOneStatement() {
+		for (int i = 0; i < 20; i++) {
+			saleService.createSale(saleWithItems(2));
+		}
+
+		statistics.clear();
+		List<SaleDTO> sales = saleService.listAllSales();
+
+		assertEquals(20, sales.size());
+		assertEquals(40, sales.stream().mapToInt(sale -> sale.getItems().size()).sum());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	// Duas etapas: os IDs das 5 mais recentes com limite no banco e depois as linhas dessas vendas
+	@Test
+	void listLastFiveSalesIsTwoStatements() {
+		for (int i = 0; i < 20; i++) {
+			saleService.createSale(saleWithItems(2));
+		}
+
+		statistics.clear();
+		assertEquals(5, saleService.listLastFiveSales().size());
+		assertEquals(2, statistics.getPrepareStatementCount());
+	}
+}
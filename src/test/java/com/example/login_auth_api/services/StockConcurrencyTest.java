@@ -0,0 +1,104 @@
+package com.example.login_auth_api.services;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.exceptions.CustomException;
+import com.example.login_auth_api.repositories.StockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Centenas de vendas simultâneas do mesmo tamanho com estoque limitado: nenhuma unidade é vendida duas vezes.
+// A espera pelas travas é longa para que todas as vendas cheguem à validação do estoque
+@TestPropertySource(properties = "sales.locks.timeout-ms=60000")
+class StockConcurrencyTest extends EmbeddedPostgresTest {
+
+	private static final int STOCK = 50;
+	private static final int ATTEMPTS = 300;
+
+	@Autowired
+	private SaleService saleService;
+
+	@Autowired
+	private StockRepository stockRepository;
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "USER");
+		insertProductWithSize("produto", "tamanho", STOCK, new BigDecimal("100.00"));
+	}
+
+	@Test
+	void parallelSalesNeverOversell() throws Exception {
+		List<String> errors = runInParallel(() -> {
+			saleService.createSale(SaleBatchTest.sale("produto", "tamanho", 1));
+			return null;
+		});
+
+		assertEquals(ATTEMPTS - STOCK, errors.size());
+		errors.forEach(error -> assertTrue(error.startsWith("Quantidade insuficiente"), error));
+		assertEquals(0, sizeQuantity("tamanho"));
+		assertEquals(STOCK, jdbcTemplate.queryForObject("SELECT count(*) FROM sales", Integer.class));
+		assertEquals(STOCK, jdbcTemplate.queryForObject("SELECT quantity_sold FROM products WHERE id = 'produto'", Integer.class));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT quantity FROM products WHERE id = 'produto'", Integer.class));
+	}
+
+	// Sem as travas em memória (ex.: outra instância da aplicação) a baixa condicional no banco ainda barra o excesso
+	@Test
+	void guardedDecrementNeverGoesNegative() throws Exception {
+		List<String> errors = runInParallel(() -> {
+			if (!stockRepository.decrementSizes(Map.of("tamanho", 1)).isEmpty()) {
+				throw new CustomException("Quantidade insuficiente");
+			}
+			return null;
+		});
+
+		assertEquals(ATTEMPTS - STOCK, errors.size());
+		assertEquals(0, sizeQuantity("tamanho"));
+	}
+
+	// Dispara as tentativas ao mesmo tempo e devolve as mensagens das que falharam
+	private List<String> runInParallel(Callable<Void> attempt) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(ATTEMPTS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < ATTEMPTS; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return attempt.call();
+				}));
+			}
+			start.countDown();
+
+			List<String> errors = new ArrayList<>();
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (!(e.getCause() instanceof CustomException)) {
+						throw e;
+					}
+					errors.add(e.getCause().getMessage());
+				}
+			}
+			return errors;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.domain.sales.Sale;
+import com.example.login_auth_api.dto.SaleDTO;
+import com.example.login_auth_api.repositories.CategoryRankingRepository.Metric;
+import com.example.login_auth_api.services.SaleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Faturamento por categoria depois de uma mudança de preço: os totais diários e a consulta direta aos itens
+// usam o preço do momento da venda
+class CategoryRankingServiceTest extends EmbeddedPostgresTest {
+
+	@Autowired
+	private SaleService saleService;
+
+	@Autowired
+	private CategoryRankingService categoryRankingService;
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "USER");
+		insertProductWithSize("produto", "tamanho", 10, new BigDecimal("100.00"));
+	}
+
+	private Sale sellTwo() {
+		SaleDTO saleDTO = new SaleDTO();
+		saleDTO.setUserId("vendedor");
+		saleDTO.setPaymentMethod(PaymentMethod.PIX);
+		saleDTO.setItems(List.of(new SaleDTO.SaleItemDTO(null, "produto", null, null, "tamanho", null, 2)));
+		return saleService.createSale(saleDTO);
+	}
+
+	@Test
+	void revenueUsesPriceAtSaleTimeOnBothPaths() {
+		sellTwo();
+		jdbcTemplate.update("UPDATE products SET price = 250.00 WHERE id = 'produto'");
+
+		LocalDate today = LocalDate.now();
+		// Dias inteiros: totais diários
+		Map<String, BigDecimal> fromRollup = categoryRankingService.rankDays(today, today, Metric.REVENUE, null);
+		// Intervalo com horas: itens das vendas
+		Map<String, BigDecimal> fromSales = categoryRankingService.rank(today.atStartOfDay().plusSeconds(1),
+				LocalDateTime.now().plusMinutes(1), Metric.REVENUE, null);
+
+		assertEquals(0, new BigDecimal("200.00").compareTo(fromRollup.get("Categoria")), fromRollup.toString());
+		assertEquals(0, new BigDecimal("200.00").compareTo(fromSales.get("Categoria")), fromSales.toString());
+	}
+
+	// A exclusão depois da mudança de preço retira o valor que a criação somou
+	@Test
+	void deleteAfterPriceChangeRemovesOriginalRevenue() {
+		Sale sale = sellTwo();
+		jdbcTemplate.update("UPDATE products SET price = 250.00 WHERE id = 'produto'");
+
+		saleService.deleteSaleById(sale.getId());
+
+		LocalDate today = LocalDate.now();
+		assertTrue(categoryRankingService.rankDays(today, today, Metric.REVENUE, null).isEmpty());
+		assertEquals(0, BigDecimal.ZERO.compareTo(jdbcTemplate.queryForObject(
+				"SELECT COALESCE(SUM(subtotal), 0) FROM daily_sales_rollup WHERE category_id <> '*'", BigDecimal.class)));
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.services.events.SaleChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportCacheTest {
+
+	private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+	private static final LocalDate TO = LocalDate.of(2024, 1, 31);
+
+	private final ReportCache reportCache = new ReportCache(100, 10);
+
+	private static SaleChangedEvent saleOn(LocalDate day) {
+		return new SaleChangedEvent(List.of(new SaleChangedEvent.SaleChange(day.atTime(12, 0), PaymentMethod.PIX,
+				false, BigDecimal.TEN, 1)));
+	}
+
+	@Test
+	void saleInsidePeriodEvictsResult() {
+		assertEquals("antes", reportCache.get("relatorio", FROM, TO, () -> "antes"));
+		reportCache.onSaleChanged(saleOn(LocalDate.of(2024, 2, 10)));
+		assertEquals("antes", reportCache.get("relatorio", FROM, TO, () -> "depois"));
+
+		reportCache.onSaleChanged(saleOn(LocalDate.of(2024, 1, 10)));
+		assertEquals("depois", reportCache.get("relatorio", FROM, TO, () -> "depois"));
+	}
+
+	// Cálculo lento que começou antes da venda ser gravada e termina depois da remoção: o resultado antigo vai
+	// para quem pediu, mas a próxima leitura calcula de novo
+	@Test
+	void loadRunningDuringSaleChangeIsNotCached() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch finish = new CountDownLatch(1);
+		CompletableFuture<String> slowLoad = CompletableFuture.supplyAsync(() ->
+				reportCache.get("relatorio", FROM, TO, () -> {
+					loading.countDown();
+					try {
+						finish.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return "antigo";
+				}));
+
+		assertTrue(loading.await(10, TimeUnit.SECONDS));
+		reportCache.onSaleChanged(saleOn(LocalDate.of(2024, 1, 15)));
+		finish.countDown();
+
+		assertEquals("antigo", slowLoad.get(10, TimeUnit.SECONDS));
+		assertEquals("novo", reportCache.get("relatorio", FROM, TO, () -> "novo"));
+		assertEquals("novo", reportCache.get("relatorio", FROM, TO, () -> "outro"));
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Os CSVs em stream mantêm, byte a byte, o layout gerado antes com StringBuilder
+class ReportCsvTest extends EmbeddedPostgresTest {
+
+	@Autowired
+	private ReportSalesService reportSalesService;
+
+	@Autowired
+	private ReportProductsService reportProductsService;
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "ADMIN");
+		insertProductWithSize("produto", "tamanho", 5, new BigDecimal("10.00"));
+		jdbcTemplate.update("UPDATE products SET quantity_sold = 3 WHERE id = 'produto'");
+		jdbcTemplate.update("INSERT INTO sales (id, sale_date, total_amount, payment_method, user_id, is_gift, subtotal, discount) "
+				+ "VALUES ('venda-1', timestamp '2024-01-01 10:00', 20.00, 'PIX', 'vendedor', false, 20.00, 0.00)");
+		jdbcTemplate.update("INSERT INTO sale_items (id, sale_id, product_id, size_id, quantity, unit_price) "
+				+ "VALUES ('item-1', 'venda-1', 'produto', 'tamanho', 2, 10.00)");
+	}
+
+	@Test
+	void salesCsvKeepsPreviousLayout() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		reportSalesService.writeSalesCsvReport(out, null, null, null);
+
+		assertEquals("ID da venda;Data;Vendedor;Produtos;Quantidade de tamanhos;Valor da venda;Valor do desconto;"
+						+ "Subtotal da venda;Metodo de pagamento;Presente;Observação\n"
+						+ "venda-1;01/01/2024;Usuário vendedor;Produto produto tam. (40);2 (40);20.00;0.00;20.00;PIX;NÃO;null;\n"
+						+ "\nPeríodo de Pesquisa: Não especificado todas as vendas listadas;",
+				out.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void salesCsvWithPeriodEndsWithSemicolon() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		reportSalesService.writeSalesCsvReport(out, LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 31, 23, 59), null);
+
+		String csv = out.toString(StandardCharsets.UTF_8);
+		assertTrue(csv.endsWith(";NÃO;null;\n\nPeríodo de Pesquisa: 01/01/2024 00:00 a 31/01/2024 23:59;"), csv);
+	}
+
+	@Test
+	void productsCsvKeepsPreviousLayout() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		reportProductsService.writeProductsCsvReport(out, null, false, null);
+
+		assertEquals("ID do Produto;Nome;Categoria;Custo;Preço;Quantidade disponivel;Quantidade por tamanho disponivel;"
+						+ "Deletado;Quantidade vendida\n"
+						+ "produto;Produto produto;Categoria;1.00;10.00;5;5(40);NÃO;3;\n"
+						+ "\nFiltro 'Deletado' especificado: Não especificado\n",
+				out.toString(StandardCharsets.UTF_8));
+	}
+
+	// Com a coluna de lucro, o lucro é a última coluna (sem ";" depois)
+	@Test
+	void productsCsvWithProfitEndsWithProfit() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		reportProductsService.writeProductsCsvReport(out, false, true, null);
+
+		assertEquals("ID do Produto;Nome;Categoria;Custo;Preço;Quantidade disponivel;Quantidade por tamanho disponivel;"
+						+ "Deletado;Quantidade vendida;Lucro\n"
+						+ "produto;Produto produto;Categoria;1.00;10.00;5;5(40);NÃO;3;27.00\n"
+						+ "\nFiltro 'Deletado' especificado: NÃO\n",
+				out.toString(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.EmbeddedPostgresTest;
+import com.example.login_auth_api.dto.SalesPerDayDTO;
+import com.example.login_auth_api.repositories.SaleRepository;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// PDF de vendas dividido em partes: 4 partes pedidas, mas o pool de 4 conexões limita a 2
+@TestPropertySource(properties = {"reports.pdf.parallelism=4", "reports.pdf.parallel-min-sales=10",
+		"spring.datasource.hikari.maximum-pool-size=4"})
+class ReportSalesServiceTest extends EmbeddedPostgresTest {
+
+	@Autowired
+	private ReportSalesService reportSalesService;
+
+	@Autowired
+	private SaleRepository saleRepository;
+
+	@BeforeEach
+	void insertData() {
+		insertUser("vendedor", "ADMIN");
+		insertProductWithSize("produto", "tamanho", 1000, new BigDecimal("10.00"));
+		// 40 vendas, 10 por dia entre 01/01 e 04/01/2024; as de número par (dias 01 e 03) são presentes
+		jdbcTemplate.update("INSERT INTO sales (id, sale_date, total_amount, payment_method, user_id, is_gift, subtotal, discount) "
+				+ "SELECT 'venda-' || g, timestamp '2024-01-01' + (g % 4) * interval '1 day' + g * interval '1 minute', "
+				+ "10, 'PIX', 'vendedor', g % 2 = 0, 10, 0 FROM generate_series(1, 40) g");
+		jdbcTemplate.update("INSERT INTO sale_items (id, sale_id, product_id, size_id, quantity, unit_price) "
+				+ "SELECT 'item-' || g, 'venda-' || g, 'produto', 'tamanho', 1, 10.00 FROM generate_series(1, 40) g");
+	}
+
+	@Test
+	void parallelismIsCappedByConnectionPool() {
+		assertEquals(2, ReflectionTestUtils.getField(reportSalesService, "pdfParallelism"));
+	}
+
+	@Test
+	void countsSalesPerDayWithOptionalFilters() {
+		List<SalesPerDayDTO> all = saleRepository.countAllSalesPerDay();
+		assertEquals(List.of(LocalDate.of(2024, 1, 4), LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 1)),
+				all.stream().map(SalesPerDayDTO::day).toList());
+		assertEquals(40, all.stream().mapToLong(SalesPerDayDTO::salesCount).sum());
+
+		List<SalesPerDayDTO> gifts = saleRepository.countSalesPerDayBySaleDateBetweenAndIsGift(LocalDateTime.of(2024, 1, 2, 0, 0),
+				LocalDateTime.of(2024, 1, 3, 23, 59), true);
+		assertEquals(List.of(new SalesPerDayDTO(LocalDate.of(2024, 1, 3), 10L)), gifts);
+	}
+
+	@Test
+	void pdfInPartsHasEverySale() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		reportSalesService.writeSalesPdfReport(out, null, null, null);
+
+		try (PdfDocument pdf = new PdfDocument(new PdfReader(new ByteArrayInputStream(out.toByteArray())))) {
+			StringBuilder text = new StringBuilder();
+			for (int i = 1; i <= pdf.getNumberOfPages(); i++) {
+				text.append(PdfTextExtractor.getTextFromPage(pdf.getPage(i)));
+			}
+			for (int i = 1; i <= 40; i++) {
+				assertTrue(text.indexOf("venda-" + i + "\n") >= 0 || text.indexOf("venda-" + i + " ") >= 0, "venda-" + i);
+			}
+			assertTrue(text.indexOf("Total de Vendas: 40") >= 0, text.toString());
+		}
+	}
+}
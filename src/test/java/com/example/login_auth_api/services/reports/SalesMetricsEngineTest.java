@@ -0,0 +1,99 @@
+package com.example.login_auth_api.services.reports;
+
+import com.example.login_auth_api.domain.sales.PaymentMethod;
+import com.example.login_auth_api.repositories.SalesRollupRepository;
+import com.example.login_auth_api.services.events.SaleChangedEvent;
+import com.example.login_auth_api.services.reports.SalesMetricsEngine.Period;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SalesMetricsEngineTest {
+
+	// Totais diários fixos em 10 vendas por período; a leitura pode ser travada para simular uma recarga lenta
+	private static class StubRollupRepository extends SalesRollupRepository {
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch finish = new CountDownLatch(1);
+		volatile boolean slow;
+
+		StubRollupRepository() {
+			super(null);
+		}
+
+		@Override
+		public Totals totals(LocalDate from, LocalDate to) {
+			if (slow) {
+				slow = false;
+				loading.countDown();
+				try {
+					finish.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return new Totals(10, BigDecimal.valueOf(1000));
+		}
+
+		@Override
+		public long countByGift(LocalDate from, LocalDate to, boolean isGift) {
+			return isGift ? 0 : 10;
+		}
+
+		@Override
+		public Map<PaymentMethod, Long> countByPaymentMethod(LocalDate from, LocalDate to) {
+			Map<PaymentMethod, Long> counts = new EnumMap<>(PaymentMethod.class);
+			counts.put(PaymentMethod.PIX, 10L);
+			return counts;
+		}
+	}
+
+	private final StubRollupRepository repository = new StubRollupRepository();
+	private final SalesMetricsEngine engine = new SalesMetricsEngine(repository);
+
+	private static SaleChangedEvent saleNow() {
+		return new SaleChangedEvent(List.of(new SaleChangedEvent.SaleChange(LocalDateTime.now(), PaymentMethod.PIX,
+				false, BigDecimal.TEN, 1)));
+	}
+
+	@Test
+	void saleIsAppliedToLoadedNumbers() {
+		engine.warmUp();
+		engine.onSaleChanged(saleNow());
+
+		assertEquals(11, engine.salesCount(Period.DAY));
+		assertEquals(0, BigDecimal.valueOf(1010).compareTo(engine.subtotal(Period.DAY)));
+	}
+
+	// Venda aplicada enquanto a recarga lê o banco (e não está nos números lidos): continua contada depois da troca
+	@Test
+	void saleDuringResyncIsNotLost() throws Exception {
+		engine.warmUp();
+		repository.slow = true;
+		CompletableFuture<Void> resync = CompletableFuture.runAsync(engine::resync);
+
+		assertTrue(repository.loading.await(10, TimeUnit.SECONDS));
+		engine.onSaleChanged(saleNow());
+		assertEquals(11, engine.salesCount(Period.DAY));
+		repository.finish.countDown();
+		resync.get(10, TimeUnit.SECONDS);
+
+		assertEquals(11, engine.salesCount(Period.DAY));
+		assertEquals(11, engine.salesCount(Period.MONTH));
+		assertEquals(11, engine.salesByPaymentMethod(Period.YEAR).get(PaymentMethod.PIX));
+
+		// Fora da recarga as vendas não são mais guardadas para reaplicar
+		engine.resync();
+		assertEquals(10, engine.salesCount(Period.DAY));
+	}
+}